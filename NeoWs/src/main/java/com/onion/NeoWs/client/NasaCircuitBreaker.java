@@ -0,0 +1,103 @@
+/**
+ * The NasaCircuitBreaker class guards calls to NASA's NeoWs API so that an outage does not tie up request
+ * threads on dead connections.
+ *
+ * States:
+ * - CLOSED: calls go through; consecutive failures are counted.
+ * - OPEN: entered after too many consecutive failures; calls are rejected without touching the network
+ *   until the open duration has elapsed.
+ * - HALF_OPEN: a single probe call is let through. Success closes the breaker, failure opens it again.
+ */
+package com.onion.NeoWs.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class NasaCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private Instant openedAt;
+    private boolean probeInFlight = false;
+
+    @Autowired
+    public NasaCircuitBreaker(@Value("${nasa.circuit-breaker.failure-threshold:3}") int failureThreshold,
+                              @Value("${nasa.circuit-breaker.open-duration-ms:60000}") long openDurationMs) {
+        this(failureThreshold, openDurationMs, Clock.systemUTC());
+    }
+
+    NasaCircuitBreaker(int failureThreshold, long openDurationMs, Clock clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = Duration.ofMillis(openDurationMs);
+        this.clock = clock;
+    }
+
+    /**
+     * Decides whether a call to NASA may proceed. Moves an expired OPEN breaker to HALF_OPEN and
+     * allows exactly one probe through while half-open.
+     *
+     * @return true if the caller may call NASA, false if it should fail fast.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            log.info("NASA API circuit half-open, probing with next request");
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("NASA API probe succeeded, closing circuit");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Opening NASA API circuit after {} consecutive failures, failing fast for {} seconds",
+                        consecutiveFailures, openDuration.toSeconds());
+            }
+            state = State.OPEN;
+            openedAt = clock.instant();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -7,6 +7,7 @@
  * - Fetches asteroid data from NASA's NeoWs API for a given date range.
  * - Validates date ranges to ensure compliance with NASA's API restrictions (e.g., maximum 7-day range).
  * - Handles errors gracefully with logging and custom exceptions.
+ * - Guards NASA calls with a circuit breaker and falls back to the last good response for the same window.
  * - Uses configuration properties for the API URL and key to avoid hardcoding sensitive data.
  * 
  * Dependencies:
@@ -16,10 +17,13 @@
  */
 package com.onion.NeoWs.client;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -29,6 +33,8 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import com.onion.NeoWs.dto.Asteroid;
 import com.onion.NeoWs.dto.NasaNeoResponse;
+import com.onion.NeoWs.dto.NeoFeed;
+import com.onion.NeoWs.exception.NasaApiException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,7 +42,18 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class NasaClient {
 
+    private static final int MAX_CACHED_WINDOWS = 8;
+
     private final RestTemplate restTemplate;
+    private final NasaCircuitBreaker circuitBreaker;
+
+    // Last good response per date window, served as stale data while NASA is unavailable
+    private final Map<String, NeoFeed> lastGoodFeeds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NeoFeed> eldest) {
+            return size() > MAX_CACHED_WINDOWS;
+        }
+    };
     
     @Value("${nasa.neo.api.url}")
     private String neoApiUrl;
@@ -45,13 +62,51 @@ public class NasaClient {
     private String apiKey;
 
     /**
-     * Constructor-based dependency injection for RestTemplate.
+     * Constructor-based dependency injection for RestTemplate and NasaCircuitBreaker.
      * 
      * @param restTemplate The RestTemplate bean for making HTTP requests.
+     * @param circuitBreaker The breaker guarding calls to NASA.
      */
     // Inject RestTemplate as a bean instead of creating new instances
-    public NasaClient(RestTemplate restTemplate) {
+    public NasaClient(RestTemplate restTemplate, NasaCircuitBreaker circuitBreaker) {
         this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Retrieves asteroids for the specified date range through the circuit breaker.
+     * If NASA fails, or the breaker is open, the last good data for the same window is returned
+     * with the stale flag set. Without cached data the call fails fast.
+     * 
+     * @param fromDate The start date for fetching asteroid data.
+     * @param toDate The end date for fetching asteroid data.
+     * @return A NeoFeed with the asteroids and whether they are stale.
+     * @throws NasaApiException If NASA cannot be reached and no earlier data exists for the window.
+     */
+    public NeoFeed getNeoFeed(final LocalDate fromDate, final LocalDate toDate) {
+        validateDateRange(fromDate, toDate);
+        final String window = fromDate + ".." + toDate;
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            log.warn("NASA API circuit is {}, skipping call for {}", circuitBreaker.getState(), window);
+            return staleFeedOrFail(window, null);
+        }
+
+        try {
+            final NeoFeed feed = NeoFeed.builder()
+                    .asteroids(getNeoAsteroids(fromDate, toDate))
+                    .stale(false)
+                    .fetchedAt(Instant.now())
+                    .build();
+            circuitBreaker.onSuccess();
+            synchronized (lastGoodFeeds) {
+                lastGoodFeeds.put(window, feed);
+            }
+            return feed;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            return staleFeedOrFail(window, e);
+        }
     }
 
     /**
@@ -102,6 +157,25 @@ public class NasaClient {
         }
     }
 
+    private NeoFeed staleFeedOrFail(String window, RuntimeException cause) {
+        final NeoFeed lastGood;
+        synchronized (lastGoodFeeds) {
+            lastGood = lastGoodFeeds.get(window);
+        }
+
+        if (lastGood == null) {
+            String message = "NASA API unavailable and no cached data for " + window;
+            throw cause != null ? new NasaApiException(message, cause) : new NasaApiException(message);
+        }
+
+        log.warn("Serving stale asteroid data for {} fetched at {}", window, lastGood.getFetchedAt());
+        return NeoFeed.builder()
+                .asteroids(lastGood.getAsteroids())
+                .stale(true)
+                .fetchedAt(lastGood.getFetchedAt())
+                .build();
+    }
+
     /**
      * Validates the date range to ensure it meets NASA's API requirements.
      * 
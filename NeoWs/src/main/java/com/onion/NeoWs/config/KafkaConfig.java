@@ -1,6 +1,7 @@
 package com.onion.NeoWs.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
@@ -8,11 +9,16 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaConfig {
 
+    /**
+     * Events are keyed by asteroid name, so each asteroid's events stay in order on one partition
+     * while consumers process different partitions in parallel. KafkaAdmin adds partitions to an
+     * existing topic if this is raised, but never removes them.
+     */
     @Bean
-    public NewTopic asteroidAlertTopic() {
+    public NewTopic asteroidAlertTopic(@Value("${kafka.topic.asteroid-alert.partitions:6}") int partitions) {
         return TopicBuilder.name("asteroid-alert")
-                .partitions(1)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
-} 
\ No newline at end of file
+}
@@ -10,6 +10,7 @@
  * Key Features:
  * - Health check endpoint to verify service status.
  * - Trigger endpoint to initiate the asteroid alert workflow.
+ * - Server-Sent Events endpoint that pushes alerts to clients as they are published.
  * 
  * Dependencies:
  * - Spring Boot for REST API functionality.
@@ -25,13 +26,17 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.onion.NeoWs.service.AlertService;
+import com.onion.NeoWs.service.AlertStreamService;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -44,15 +49,18 @@ import java.util.Map;
 public class AlertController {
 
     private final AlertService alertService;
+    private final AlertStreamService alertStreamService;
 
     /**
-     * Constructor-based dependency injection for AlertService.
+     * Constructor-based dependency injection for AlertService and AlertStreamService.
      * 
      * @param alertService The service responsible for handling the asteroid alert logic.
+     * @param alertStreamService The service that pushes published alerts to SSE subscribers.
      */
     // @Autowired (Commented out as constructor injection is preferred for better testability)
-    public AlertController(AlertService alertService) {
+    public AlertController(AlertService alertService, AlertStreamService alertStreamService) {
         this.alertService = alertService;
+        this.alertStreamService = alertStreamService;
     }
     
     /**
@@ -98,12 +106,15 @@ public class AlertController {
     public ResponseEntity<Map<String, Object>> triggerAlert() {
         try {
             // This will block until processing is complete
-            alertService.alert();
+            boolean staleData = alertService.alert();
             
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Alert processing completed");
+            response.put("message", staleData
+                    ? "Alert processing completed using stale NASA data"
+                    : "Alert processing completed");
             response.put("timestamp", LocalDateTime.now());
             response.put("status", "SUCCESS");
+            response.put("staleData", staleData);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -118,4 +129,25 @@ public class AlertController {
                                .body(errorResponse);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens a Server-Sent Events stream of asteroid collision events.
+     * New connections first receive the most recent events; clients reconnecting with a
+     * Last-Event-ID header only receive the events they missed.
+     * 
+     * @param lastEventId The id of the last event the client received, if reconnecting.
+     * @return An SseEmitter that receives every event published after this call.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream Asteroid Alerts",
+        description = "Pushes every published asteroid collision event to the client over Server-Sent Events, replaying recent events on connect"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    public SseEmitter streamAlerts(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Opening alert stream (Last-Event-ID: {})", lastEventId);
+        return alertStreamService.subscribe(lastEventId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.onion.NeoWs.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Asteroids returned for one date window, together with where they came from.
+ *
+ * When NASA is unreachable or the circuit breaker is open, NasaClient serves the last good
+ * response for the same window; such feeds have stale set to true and fetchedAt pointing at
+ * the time of the original successful call.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NeoFeed {
+
+    private List<Asteroid> asteroids;
+
+    /**
+     * True if the data is a cached copy served because NASA could not be reached.
+     */
+    private boolean stale;
+
+    /**
+     * When the data was retrieved from NASA.
+     */
+    private Instant fetchedAt;
+}
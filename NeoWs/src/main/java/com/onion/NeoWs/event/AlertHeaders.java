@@ -0,0 +1,21 @@
+package com.onion.NeoWs.event;
+
+/**
+ * Kafka headers NeoWs adds to every AsteroidCollisionEvent so consumers can measure end-to-end
+ * alert latency. Values are epoch milliseconds as decimal ASCII strings.
+ */
+public final class AlertHeaders {
+
+    /**
+     * When the asteroid data was retrieved from NASA (the original fetch time for stale data).
+     */
+    public static final String INGESTED_AT = "alert-ingested-at";
+
+    /**
+     * When the event was handed to the Kafka producer.
+     */
+    public static final String PUBLISHED_AT = "alert-published-at";
+
+    private AlertHeaders() {
+    }
+}
@@ -6,25 +6,38 @@ import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import com.onion.NeoWs.client.NasaCircuitBreaker;
+
 @Component
 public class NasaApiHealthIndicator implements HealthIndicator {
 
     private final RestTemplate restTemplate = new RestTemplate();
 
     private final String nasaApiKey;
+    private final NasaCircuitBreaker circuitBreaker;
 
-    public NasaApiHealthIndicator(@Value("${nasa.api.key}") String nasaApiKey) {
+    public NasaApiHealthIndicator(@Value("${nasa.api.key}") String nasaApiKey, NasaCircuitBreaker circuitBreaker) {
         this.nasaApiKey = nasaApiKey;
+        this.circuitBreaker = circuitBreaker;
     }
 
     @Override
     public Health health() {
+        NasaCircuitBreaker.State circuitState = circuitBreaker.getState();
+        if (circuitState == NasaCircuitBreaker.State.OPEN) {
+            // Don't add to the load on an API we already know is failing
+            return Health.down()
+                    .withDetail("NASA API", "Unavailable")
+                    .withDetail("circuit", circuitState)
+                    .build();
+        }
+
         String url = "https://api.nasa.gov/neo/rest/v1/feed?api_key=" + nasaApiKey;
         try {
             restTemplate.getForObject(url, String.class);
-            return Health.up().withDetail("NASA API", "Available").build();
+            return Health.up().withDetail("NASA API", "Available").withDetail("circuit", circuitState).build();
         } catch (Exception e) {
-            return Health.down(e).withDetail("NASA API", "Unavailable").build();
+            return Health.down(e).withDetail("NASA API", "Unavailable").withDetail("circuit", circuitState).build();
         }
     }
 }
@@ -6,7 +6,8 @@
  * monitoring system, handling data retrieval, filtering, and event publishing.
  * 
  * Key Features:
- * - Fetches asteroid data for a specified date range (default: current date to 7 days in the future).
+ * - Fetches asteroid data for a specified date range (default: current date to 7 days in the future),
+ *   falling back to the last good data when NASA is unavailable.
  * - Filters asteroids to identify those marked as potentially hazardous.
  * - Publishes collision events for hazardous asteroids to a Kafka topic asynchronously.
  * - Handles errors gracefully with custom exceptions and logging.
@@ -14,21 +15,27 @@
  * Dependencies:
  * - NasaClient: For interacting with NASA's NeoWs API.
  * - KafkaTemplate: For publishing events to a Kafka topic.
+ * - AlertStreamService: For pushing published events to live SSE subscribers.
  * - Lombok: For logging and reducing boilerplate code.
  * - CompletableFuture: For asynchronous event publishing.
  */
 package com.onion.NeoWs.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import com.onion.NeoWs.client.NasaClient;
 import com.onion.NeoWs.dto.Asteroid;
+import com.onion.NeoWs.dto.NeoFeed;
+import com.onion.NeoWs.event.AlertHeaders;
 import com.onion.NeoWs.event.AsteroidCollisionEvent;
 import com.onion.NeoWs.exception.NasaApiException;
 import com.onion.NeoWs.exception.KafkaPublishingException;
@@ -41,16 +48,20 @@ public class AlertService {
 
     private final NasaClient nasaClient;
     private final KafkaTemplate<String, AsteroidCollisionEvent> kafkaTemplate;
+    private final AlertStreamService alertStreamService;
 
     /**
-     * Constructor-based dependency injection for NasaClient and KafkaTemplate.
+     * Constructor-based dependency injection for NasaClient, KafkaTemplate and AlertStreamService.
      * 
      * @param nasaClient The client for fetching asteroid data from NASA's NeoWs API.
      * @param kafkaTemplate The Kafka template for publishing asteroid collision events.
+     * @param alertStreamService The stream that pushes published events to SSE subscribers.
      */
-    public AlertService(NasaClient nasaClient, KafkaTemplate<String, AsteroidCollisionEvent> kafkaTemplate) {
+    public AlertService(NasaClient nasaClient, KafkaTemplate<String, AsteroidCollisionEvent> kafkaTemplate,
+                        AlertStreamService alertStreamService) {
         this.nasaClient = nasaClient;
         this.kafkaTemplate = kafkaTemplate;
+        this.alertStreamService = alertStreamService;
     }
 
     /**
@@ -60,16 +71,23 @@ public class AlertService {
      * 3. Publishes collision events for hazardous asteroids to a Kafka topic.
      * 
      * Logs the progress and handles errors by throwing custom exceptions.
+     * 
+     * @return true if the run used stale data because NASA could not be reached.
      */
-    public void alert() {
+    public boolean alert() {
         log.info("Alerting service triggered");
 
         final LocalDate fromDate = LocalDate.now();
         final LocalDate toDate = LocalDate.now().plusDays(7);
 
         // Fetch asteroid data
-        final List<Asteroid> asteroidList = fetchAsteroidData(fromDate, toDate);
-        log.info("Received {} asteroids from NASA API", asteroidList.size());
+        final NeoFeed feed = fetchAsteroidData(fromDate, toDate);
+        final List<Asteroid> asteroidList = feed.getAsteroids();
+        if (feed.isStale()) {
+            log.warn("NASA API unavailable, using {} stale asteroids fetched at {}", asteroidList.size(), feed.getFetchedAt());
+        } else {
+            log.info("Received {} asteroids from NASA API", asteroidList.size());
+        }
 
         // Filter hazardous asteroids
         final List<Asteroid> hazardousAsteroids = asteroidList.stream()
@@ -80,12 +98,13 @@ public class AlertService {
 
         if (hazardousAsteroids.isEmpty()) {
             log.info("No hazardous asteroids found, no alerts to send");
-            return;
+            return feed.isStale();
         }
 
         // Create and send events
-        publishAsteroidEvents(hazardousAsteroids);
+        publishAsteroidEvents(hazardousAsteroids, feed.getFetchedAt());
         log.info("Alert processing completed successfully");
+        return feed.isStale();
     }
 
     /**
@@ -93,13 +112,16 @@ public class AlertService {
      * 
      * @param fromDate The start date for fetching asteroid data.
      * @param toDate The end date for fetching asteroid data.
-     * @return A list of Asteroid objects.
-     * @throws NasaApiException If the API call fails.
+     * @return A NeoFeed with the asteroids, possibly stale if NASA is unavailable.
+     * @throws NasaApiException If the API call fails and no stale data is available.
      */
-    private List<Asteroid> fetchAsteroidData(LocalDate fromDate, LocalDate toDate) {
+    private NeoFeed fetchAsteroidData(LocalDate fromDate, LocalDate toDate) {
         log.info("Getting asteroid data from {} to {}", fromDate, toDate);
         try {
-            return nasaClient.getNeoAsteroids(fromDate, toDate);
+            return nasaClient.getNeoFeed(fromDate, toDate);
+        } catch (NasaApiException e) {
+            log.error("Failed to fetch asteroid data from NASA API: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Failed to fetch asteroid data from NASA API", e);
             throw new NasaApiException("Failed to fetch asteroid data from NASA API: " + e.getMessage(), e);
@@ -111,15 +133,16 @@ public class AlertService {
      * Waits for all events to be sent before completing.
      * 
      * @param hazardousAsteroids The list of hazardous asteroids to process.
+     * @param ingestedAt When the asteroid data was retrieved from NASA.
      * @throws KafkaPublishingException If event publishing fails.
      */
-    private void publishAsteroidEvents(List<Asteroid> hazardousAsteroids) {
+    private void publishAsteroidEvents(List<Asteroid> hazardousAsteroids, Instant ingestedAt) {
         final List<AsteroidCollisionEvent> events = createEventListOfHazardousAsteroids(hazardousAsteroids);
         log.info("Sending {} asteroid collision events to Kafka topic", events.size());
 
         // Send all asynchronously and wait for all to complete
         List<CompletableFuture<Void>> futures = events.stream()
-                .map(this::sendEventAsync)
+                .map(event -> sendEventAsync(event, ingestedAt))
                 .toList();
 
         // Wait for all to complete
@@ -134,20 +157,38 @@ public class AlertService {
     }
 
     /**
-     * Sends a single asteroid collision event to the Kafka topic asynchronously.
+     * Sends a single asteroid collision event to the Kafka topic asynchronously, keyed by asteroid
+     * name so all events for one asteroid land on the same partition and are consumed in order.
+     * The ingest and publish times travel as headers (see AlertHeaders) for latency tracking.
+     * Once Kafka acknowledges the event it is also pushed to live stream subscribers.
      * 
      * @param event The AsteroidCollisionEvent to send.
+     * @param ingestedAt When the asteroid data was retrieved from NASA, or null if unknown.
      * @return A CompletableFuture representing the asynchronous operation.
      */
-    private CompletableFuture<Void> sendEventAsync(AsteroidCollisionEvent event) {
-        return kafkaTemplate.send("asteroid-alert", event)
-                .thenAccept(result -> log.debug("Sent asteroid collision event for: {}", event.getAsteroidName()))
+    private CompletableFuture<Void> sendEventAsync(AsteroidCollisionEvent event, Instant ingestedAt) {
+        final ProducerRecord<String, AsteroidCollisionEvent> record =
+                new ProducerRecord<>("asteroid-alert", event.getAsteroidName(), event);
+        if (ingestedAt != null) {
+            record.headers().add(AlertHeaders.INGESTED_AT, epochMillis(ingestedAt.toEpochMilli()));
+        }
+        record.headers().add(AlertHeaders.PUBLISHED_AT, epochMillis(System.currentTimeMillis()));
+
+        return kafkaTemplate.send(record)
+                .thenAccept(result -> {
+                    log.debug("Sent asteroid collision event for: {}", event.getAsteroidName());
+                    alertStreamService.publish(event);
+                })
                 .exceptionally(throwable -> {
                     log.error("Failed to send event for asteroid: {}", event.getAsteroidName(), throwable);
                     throw new RuntimeException("Failed to send event", throwable);
                 });
     }
 
+    private static byte[] epochMillis(long millis) {
+        return Long.toString(millis).getBytes(StandardCharsets.US_ASCII);
+    }
+
     /**
      * Converts a list of hazardous asteroids into a list of AsteroidCollisionEvent objects.
      * 
@@ -0,0 +1,205 @@
+/**
+ * The AlertStreamService class pushes asteroid collision events to connected clients over Server-Sent Events (SSE),
+ * so dashboards can follow new alerts without polling the alert endpoint.
+ *
+ * Key Features:
+ * - Every published event gets a monotonically increasing id, used as the SSE event id.
+ * - Keeps the last N events in a replay buffer; new subscribers receive them on connect, or only the
+ *   events after their Last-Event-ID when reconnecting.
+ * - Each subscriber has its own bounded buffer drained by a separate virtual thread. A slow client
+ *   loses its oldest undelivered events instead of slowing down publishing or other subscribers.
+ */
+package com.onion.NeoWs.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.onion.NeoWs.event.AsteroidCollisionEvent;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class AlertStreamService {
+
+    private static final String EVENT_NAME = "asteroid-alert";
+
+    private final int subscriberBufferSize;
+    private final int replaySize;
+    private final Supplier<SseEmitter> emitters;
+    private final ExecutorService dispatcher;
+
+    private final Deque<StreamedEvent> replayBuffer = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long lastEventId = 0;
+
+    @Autowired
+    public AlertStreamService(@Value("${alert.stream.subscriber-buffer-size:256}") int subscriberBufferSize,
+                              @Value("${alert.stream.replay-size:100}") int replaySize,
+                              @Value("${alert.stream.timeout-ms:1800000}") long emitterTimeoutMs) {
+        this(subscriberBufferSize, replaySize, () -> new SseEmitter(emitterTimeoutMs),
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    AlertStreamService(int subscriberBufferSize, int replaySize, Supplier<SseEmitter> emitters, ExecutorService dispatcher) {
+        this.subscriberBufferSize = Math.max(1, subscriberBufferSize);
+        this.replaySize = Math.max(0, replaySize);
+        this.emitters = emitters;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Registers a new SSE subscriber and queues the replayed events for it.
+     *
+     * @param lastSeenEventId The Last-Event-ID sent by a reconnecting client, or null for a fresh connection.
+     * @return The SseEmitter to return from the controller.
+     */
+    public SseEmitter subscribe(Long lastSeenEventId) {
+        SseEmitter emitter = emitters.get();
+        Subscriber subscriber = new Subscriber(emitter);
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(throwable -> subscriber.close());
+
+        // Registering under the same lock as publish() guarantees no event is missed or delivered twice
+        synchronized (replayBuffer) {
+            replayBuffer.stream()
+                    .filter(event -> lastSeenEventId == null || event.id() > lastSeenEventId)
+                    .forEach(subscriber::offer);
+            subscribers.add(subscriber);
+        }
+
+        log.info("New alert stream subscriber connected ({} active)", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Fans an event out to every connected subscriber and records it in the replay buffer.
+     * Never blocks on slow clients.
+     *
+     * @param event The AsteroidCollisionEvent that has been published to Kafka.
+     */
+    public void publish(AsteroidCollisionEvent event) {
+        synchronized (replayBuffer) {
+            StreamedEvent streamedEvent = new StreamedEvent(++lastEventId, event);
+            if (replaySize > 0) {
+                if (replayBuffer.size() >= replaySize) {
+                    replayBuffer.pollFirst();
+                }
+                replayBuffer.addLast(streamedEvent);
+            }
+            subscribers.forEach(subscriber -> subscriber.offer(streamedEvent));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        dispatcher.shutdownNow();
+    }
+
+    private record StreamedEvent(long id, AsteroidCollisionEvent event) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Deque<StreamedEvent> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean closed = false;
+        private long droppedEvents = 0;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(StreamedEvent event) {
+            if (closed) {
+                return;
+            }
+            synchronized (buffer) {
+                if (buffer.size() >= subscriberBufferSize) {
+                    buffer.pollFirst(); // drop-oldest for slow clients
+                    droppedEvents++;
+                    // The first drop, then one warning per buffer's worth of drops
+                    if (droppedEvents == 1 || droppedEvents % subscriberBufferSize == 0) {
+                        log.warn("Alert stream subscriber is falling behind, {} events dropped so far", droppedEvents);
+                    }
+                }
+                buffer.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                StreamedEvent next;
+                while (!closed && (next = poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(next.id()))
+                            .name(EVENT_NAME)
+                            .data(next.event(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Alert stream subscriber disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+
+            // An event may have been offered after the last poll but before draining was reset
+            if (!closed && hasPending()) {
+                scheduleDrain();
+            }
+        }
+
+        private StreamedEvent poll() {
+            synchronized (buffer) {
+                return buffer.pollFirst();
+            }
+        }
+
+        private boolean hasPending() {
+            synchronized (buffer) {
+                return !buffer.isEmpty();
+            }
+        }
+
+        private void close() {
+            if (!closed) {
+                closed = true;
+                subscribers.remove(this);
+                synchronized (buffer) {
+                    buffer.clear();
+                }
+                log.info("Alert stream subscriber disconnected ({} active)", subscribers.size());
+            }
+        }
+    }
+}
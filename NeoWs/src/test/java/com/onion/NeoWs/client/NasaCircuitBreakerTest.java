@@ -0,0 +1,99 @@
+package com.onion.NeoWs.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NasaCircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MS = 60000;
+
+    private MutableClock clock;
+    private NasaCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        breaker = new NasaCircuitBreaker(3, OPEN_DURATION_MS, clock);
+    }
+
+    @Test
+    void staysClosedBelowTheFailureThreshold() {
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void successResetsTheConsecutiveFailureCount() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensAtTheThresholdAndRejectsCallsUntilTheOpenDurationHasPassed() {
+        tripBreaker();
+
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS - 1));
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void letsExactlyOneProbeThroughWhenHalfOpen() {
+        tripBreaker();
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS));
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void successfulProbeClosesTheBreaker() {
+        tripBreaker();
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS));
+        breaker.tryAcquirePermission();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedProbeReopensTheBreakerForAnotherFullOpenDuration() {
+        tripBreaker();
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS));
+        breaker.tryAcquirePermission();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS - 1));
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        clock.advance(Duration.ofMillis(1));
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private void tripBreaker() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onFailure();
+        }
+    }
+}
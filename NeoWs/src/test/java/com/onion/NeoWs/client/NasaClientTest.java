@@ -0,0 +1,151 @@
+package com.onion.NeoWs.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.onion.NeoWs.dto.Asteroid;
+import com.onion.NeoWs.dto.NasaNeoResponse;
+import com.onion.NeoWs.dto.NeoFeed;
+import com.onion.NeoWs.exception.NasaApiException;
+
+class NasaClientTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final long OPEN_DURATION_MS = 60000;
+
+    private RestTemplate restTemplate;
+    private MutableClock clock;
+    private NasaCircuitBreaker breaker;
+    private NasaClient client;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        clock = new MutableClock();
+        breaker = new NasaCircuitBreaker(3, OPEN_DURATION_MS, clock);
+        client = new NasaClient(restTemplate, breaker);
+        ReflectionTestUtils.setField(client, "neoApiUrl", "http://nasa.test/neo/rest/v1/feed");
+        ReflectionTestUtils.setField(client, "apiKey", "test-api-key");
+    }
+
+    @Test
+    void freshResponseIsNotStale() {
+        respond(FROM, "(2025 AA)");
+
+        NeoFeed feed = client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        assertThat(feed.isStale()).isFalse();
+        assertThat(feed.getAsteroids()).extracting(Asteroid::getName).containsExactly("(2025 AA)");
+    }
+
+    @Test
+    void failureServesTheLastGoodFeedOfTheSameWindowAsStale() {
+        respond(FROM, "(2025 AA)");
+        NeoFeed fresh = client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        failNasa();
+        NeoFeed stale = client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        assertThat(stale.isStale()).isTrue();
+        assertThat(stale.getFetchedAt()).isEqualTo(fresh.getFetchedAt());
+        assertThat(stale.getAsteroids()).extracting(Asteroid::getName).containsExactly("(2025 AA)");
+    }
+
+    @Test
+    void failureWithoutCachedWindowThrows() {
+        respond(FROM, "(2025 AA)");
+        client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        failNasa();
+
+        assertThatThrownBy(() -> client.getNeoFeed(FROM.plusDays(1), FROM.plusDays(2)))
+                .isInstanceOf(NasaApiException.class)
+                .hasMessageContaining(FROM.plusDays(1) + ".." + FROM.plusDays(2));
+    }
+
+    @Test
+    void openBreakerServesStaleDataWithoutCallingNasa() {
+        respond(FROM, "(2025 AA)");
+        client.getNeoFeed(FROM, FROM.plusDays(1));
+        failNasa();
+        for (int i = 0; i < 3; i++) {
+            client.getNeoFeed(FROM, FROM.plusDays(1));
+        }
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.OPEN);
+        reset(restTemplate);
+
+        NeoFeed feed = client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        assertThat(feed.isStale()).isTrue();
+        verify(restTemplate, never()).getForObject(anyString(), eq(NasaNeoResponse.class));
+        assertThatThrownBy(() -> client.getNeoFeed(FROM.plusDays(3), FROM.plusDays(4)))
+                .isInstanceOf(NasaApiException.class);
+    }
+
+    @Test
+    void successfulProbeAfterTheOpenDurationRefreshesTheWindow() {
+        failNasa();
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.getNeoFeed(FROM, FROM.plusDays(1))).isInstanceOf(NasaApiException.class);
+        }
+        clock.advance(Duration.ofMillis(OPEN_DURATION_MS));
+        respond(FROM, "(2025 BB)");
+
+        NeoFeed feed = client.getNeoFeed(FROM, FROM.plusDays(1));
+
+        assertThat(feed.isStale()).isFalse();
+        assertThat(feed.getAsteroids()).extracting(Asteroid::getName).containsExactly("(2025 BB)");
+        assertThat(breaker.getState()).isEqualTo(NasaCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void staleWindowsAreEvictedLeastRecentlyUsedFirst() {
+        // Nine windows for a cache of eight; reading the first one again makes the second the eldest
+        for (int day = 0; day < 8; day++) {
+            respond(FROM.plusDays(day), "day " + day);
+            client.getNeoFeed(FROM.plusDays(day), FROM.plusDays(day));
+        }
+        client.getNeoFeed(FROM, FROM);
+        respond(FROM.plusDays(8), "day 8");
+        client.getNeoFeed(FROM.plusDays(8), FROM.plusDays(8));
+
+        failNasa();
+
+        assertThat(client.getNeoFeed(FROM, FROM).isStale()).isTrue();
+        assertThat(client.getNeoFeed(FROM.plusDays(8), FROM.plusDays(8)).isStale()).isTrue();
+        assertThatThrownBy(() -> client.getNeoFeed(FROM.plusDays(1), FROM.plusDays(1)))
+                .isInstanceOf(NasaApiException.class);
+    }
+
+    private void respond(LocalDate startDate, String asteroidName) {
+        NasaNeoResponse response = NasaNeoResponse.builder()
+                .nearEarthObjects(Map.of(startDate.toString(), List.of(Asteroid.builder().name(asteroidName).build())))
+                .build();
+        when(restTemplate.getForObject(contains("start_date=" + startDate), eq(NasaNeoResponse.class)))
+                .thenReturn(response);
+    }
+
+    private void failNasa() {
+        when(restTemplate.getForObject(anyString(), eq(NasaNeoResponse.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.onion.NeoWs.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.onion.NeoWs.event.AsteroidCollisionEvent;
+
+/**
+ * Drives the stream with a dispatcher that only runs subscriber drains when the test says so, so a
+ * client that has not been drained yet is a slow client.
+ */
+class AlertStreamServiceTest {
+
+    private static final int BUFFER_SIZE = 3;
+    private static final int REPLAY_SIZE = 4;
+
+    private ManualExecutor dispatcher;
+    private List<RecordingEmitter> emitters;
+    private AlertStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new ManualExecutor();
+        emitters = new ArrayList<>();
+        service = new AlertStreamService(BUFFER_SIZE, REPLAY_SIZE, () -> {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }, dispatcher);
+    }
+
+    @Test
+    void liveEventsAreDeliveredInOrder() {
+        service.subscribe(null);
+
+        publish(1, 2);
+        dispatcher.runAll();
+
+        assertThat(emitters.get(0).ids).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void slowSubscriberKeepsOnlyTheNewestEventsItsBufferHolds() {
+        service.subscribe(null);
+
+        publish(1, 2, 3, 4, 5, 6, 7);
+        dispatcher.runAll();
+
+        assertThat(emitters.get(0).ids).containsExactly(5L, 6L, 7L);
+    }
+
+    @Test
+    void newSubscriberIsReplayedTheLastEventsThenFollowsLiveEvents() {
+        publish(1, 2, 3, 4, 5, 6);
+
+        service.subscribe(null);
+        dispatcher.runAll();
+        publish(7);
+        dispatcher.runAll();
+
+        // Of the last four events replayed, the subscriber's buffer keeps the newest three
+        assertThat(emitters.get(0).ids).containsExactly(4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    void reconnectingSubscriberIsReplayedOnlyWhatItMissed() {
+        publish(1, 2, 3, 4);
+
+        service.subscribe(3L);
+        dispatcher.runAll();
+
+        assertThat(emitters.get(0).ids).containsExactly(4L);
+    }
+
+    @Test
+    void disconnectedSubscriberIsDropped() {
+        service.subscribe(null);
+        emitters.get(0).failing = true;
+
+        publish(1);
+        dispatcher.runAll();
+
+        assertThat(service.getSubscriberCount()).isZero();
+    }
+
+    private void publish(int... ids) {
+        for (int id : ids) {
+            service.publish(AsteroidCollisionEvent.builder()
+                    .asteroidName("(2024 A" + id + ")")
+                    .closeApproachDate("2025-01-0" + Math.min(id, 9))
+                    .missDistanceKilometers("1234567.8")
+                    .estimatedDiameterAverageMeters(150)
+                    .build());
+        }
+    }
+
+    // Records the SSE ids it is sent instead of writing to a response
+    private static class RecordingEmitter extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        private final List<Long> ids = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            builder.build().stream()
+                    .map(part -> part.getData())
+                    .filter(String.class::isInstance)
+                    .map(String.class::cast)
+                    .map(ID::matcher)
+                    .filter(Matcher::find)
+                    .forEach(matcher -> ids.add(Long.parseLong(matcher.group(1))));
+        }
+    }
+
+    // Queues tasks until runAll, including tasks queued while running
+    private static class ManualExecutor extends AbstractExecutorService {
+
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean shutdown;
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.pollFirst()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.addLast(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
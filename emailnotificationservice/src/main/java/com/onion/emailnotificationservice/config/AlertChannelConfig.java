@@ -0,0 +1,33 @@
+package com.onion.emailnotificationservice.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AlertChannelConfig {
+
+    /**
+     * Pool for webhook posts, separate from the SMTP pool so a slow mail server never delays them
+     * and the other way round. The channel's bulkhead admits threads plus queue capacity, and the
+     * queue has room for one more post per thread, taken by a post admitted while a thread is still
+     * finishing its last. Should it still overflow, the post is rejected and retried later instead
+     * of running on the caller.
+     */
+    @Bean(name = "webhookSendExecutor")
+    public ThreadPoolTaskExecutor webhookSendExecutor(@Value("${alert.webhook.threads:2}") int threads,
+                                                      @Value("${alert.webhook.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity + threads);
+        executor.setThreadNamePrefix("webhook-send-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,57 @@
+package com.onion.emailnotificationservice.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executors behind the @Async methods of EmailService. Bulk alert runs and transactional mail
+ * (welcome emails) get separate, bounded pools so a long alert run never delays a registration
+ * email. Queue depth and active threads are published by Spring Boot as the executor.queued and
+ * executor.active metrics, tagged with the bean name.
+ */
+@Configuration
+@Slf4j
+public class AsyncConfig {
+
+    /**
+     * One alert run at a time with room for one pending request. Further triggers while a run is
+     * queued are dropped, since the queued run will pick up their work anyway.
+     */
+    @Bean(name = "alertRunExecutor")
+    public ThreadPoolTaskExecutor alertRunExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("alert-run-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.debug("Alert run already queued, coalescing trigger"));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Welcome and other one-off emails. When the queue is full the caller sends the email itself
+     * rather than losing it.
+     */
+    @Bean(name = "transactionalMailExecutor")
+    public ThreadPoolTaskExecutor transactionalMailExecutor(@Value("${email.async.transactional.threads:2}") int threads,
+                                                            @Value("${email.async.transactional.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mail-transactional-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
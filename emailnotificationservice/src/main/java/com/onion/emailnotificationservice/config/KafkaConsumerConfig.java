@@ -0,0 +1,112 @@
+package com.onion.emailnotificationservice.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import com.onion.emailnotificationservice.service.AlertRetryTopics;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@Slf4j
+public class KafkaConsumerConfig {
+
+    private static final long RETRY_POLL_TIMEOUT_MS = 1000;
+
+    /**
+     * Container factory for listeners that receive a whole poll as a List.
+     * Uses the same spring.kafka.* settings as the default, record-at-a-time factory.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    /**
+     * Container factory for the retry topics. Acks are manual so a listener can nack a record
+     * that is not due yet, which pauses its consumer (still polling) until the delay has passed.
+     * A paused consumer only notices the delay is over when its poll returns, hence the short
+     * poll timeout.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setPollTimeout(RETRY_POLL_TIMEOUT_MS);
+        return factory;
+    }
+
+    /**
+     * Error handler picked up by every listener container. Nothing is retried in place: a failed
+     * record is published to the next retry topic (or the dead-letter topic) and the partition
+     * moves on. For batch listeners the records before the failed one are committed and the ones
+     * after it are redelivered.
+     */
+    @Bean
+    public DefaultErrorHandler alertErrorHandler(KafkaTemplate<Object, Object> kafkaTemplate, AlertRetryTopics retryTopics) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate, (record, exception) -> {
+            String destination = retryTopics.destinationFor(record, exception);
+            log.warn("Forwarding {}-{}@{} to {}: {}", record.topic(), record.partition(), record.offset(),
+                    destination, exception.getMessage());
+            // Negative partition lets the producer choose; the failure topics have fewer partitions than asteroid-alert
+            return new TopicPartition(destination, -1);
+        });
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(0, 0));
+    }
+
+    /**
+     * Forwarded records keep their deserialized event as JSON; records whose payload could not be
+     * deserialized are forwarded as the original bytes. Keys use the default StringSerializer.
+     */
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer alertForwardingSerializers() {
+        return producerFactory -> {
+            Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+            serializers.put(byte[].class, new ByteArraySerializer());
+            serializers.put(Object.class, new JsonSerializer<>());
+            @SuppressWarnings("unchecked")
+            DefaultKafkaProducerFactory<Object, Object> factory = (DefaultKafkaProducerFactory<Object, Object>) producerFactory;
+            factory.setValueSerializer(new DelegatingByTypeSerializer(serializers, true));
+        };
+    }
+
+    /**
+     * Retry and dead-letter topics. One partition each keeps records in the order they became
+     * due, so a consumer paused for the head record never holds back one that is already due.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics alertFailureTopics(AlertRetryTopics retryTopics) {
+        return new KafkaAdmin.NewTopics(retryTopics.getFailureTopics().stream()
+                .map(topic -> TopicBuilder.name(topic).partitions(1).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,33 @@
+package com.onion.emailnotificationservice.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class MailSendConfig {
+
+    /**
+     * Dedicated, size-limited pool for blocking SMTP sends, sized to match the SMTP connection pool.
+     * When the queue is full the submitting thread sends the message itself, which slows
+     * producers down instead of buffering an unbounded backlog. Alert sends never get that far:
+     * the email channel's bulkhead admits threads plus queue capacity, and the queue has room for
+     * one more send per thread, taken by a send admitted while a thread is still finishing its last.
+     */
+    @Bean(name = "mailSendExecutor")
+    public ThreadPoolTaskExecutor mailSendExecutor(@Value("${email.send.threads:4}") int threads,
+                                                   @Value("${email.send.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity + threads);
+        executor.setThreadNamePrefix("mail-send-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
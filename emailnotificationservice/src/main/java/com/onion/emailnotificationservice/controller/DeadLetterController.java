@@ -0,0 +1,42 @@
+package com.onion.emailnotificationservice.controller;
+
+import com.onion.emailnotificationservice.dto.DeadLetterReplayResult;
+import com.onion.emailnotificationservice.service.DeadLetterReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/notifications/dead-letters")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Dead Letters", description = "APIs for re-driving asteroid alerts that could not be stored")
+public class DeadLetterController {
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    @PostMapping("/replay")
+    @Operation(
+        summary = "Replay dead-lettered alerts",
+        description = "Republishes records from asteroid-alert-dlt to asteroid-alert, oldest first, and reports how many remain"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Records replayed",
+            content = @Content(schema = @Schema(implementation = DeadLetterReplayResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<DeadLetterReplayResult> replay(
+            @Parameter(description = "Maximum number of records to replay") @RequestParam(defaultValue = "1000") int limit) {
+        log.info("Replaying up to {} dead-lettered asteroid alerts", limit);
+        return ResponseEntity.ok(deadLetterReplayService.replay(limit));
+    }
+}
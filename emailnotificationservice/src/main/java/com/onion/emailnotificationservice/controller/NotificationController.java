@@ -0,0 +1,79 @@
+package com.onion.emailnotificationservice.controller;
+
+import com.onion.emailnotificationservice.dto.NotificationFilter;
+import com.onion.emailnotificationservice.dto.NotificationPage;
+import com.onion.emailnotificationservice.service.NotificationHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Notifications", description = "APIs for looking up stored asteroid alerts and whether they were emailed")
+public class NotificationController {
+
+    private final NotificationHistoryService notificationHistoryService;
+
+    @GetMapping
+    @Operation(
+        summary = "List notifications",
+        description = "Returns stored notifications, newest close approach first, one keyset page at a time. "
+            + "Pass nextCursor from the response as cursor to get the next page. Responses carry an ETag; "
+            + "send it as If-None-Match to get 304 Not Modified while the page is unchanged."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Notifications retrieved successfully",
+            content = @Content(schema = @Schema(implementation = NotificationPage.class))),
+        @ApiResponse(responseCode = "304", description = "Page unchanged since the given ETag"),
+        @ApiResponse(responseCode = "400", description = "Invalid filter, cursor or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<NotificationPage> getNotifications(
+            @Parameter(description = "Earliest close approach date (inclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Latest close approach date (inclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Only sent (true) or unsent (false) notifications")
+            @RequestParam(required = false) Boolean sent,
+            @Parameter(description = "Asteroid name prefix")
+            @RequestParam(required = false) String name,
+            @Parameter(description = "Minimum miss distance in kilometers")
+            @RequestParam(required = false) BigDecimal minMissDistanceKm,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of notifications per page")
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("Fetching notifications from {} to {}, sent {}, name {}, min miss distance {}",
+                from, to, sent, name, minMissDistanceKm);
+
+        NotificationFilter filter = NotificationFilter.builder()
+                .from(from)
+                .to(to)
+                .emailSent(sent)
+                .namePrefix(name)
+                .minMissDistanceKilometers(minMissDistanceKm)
+                .build();
+        NotificationPage page = notificationHistoryService.findNotifications(filter, cursor, limit);
+
+        // A matching If-None-Match turns this into 304 without a body
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(notificationHistoryService.etagOf(page))
+                .body(page);
+    }
+}
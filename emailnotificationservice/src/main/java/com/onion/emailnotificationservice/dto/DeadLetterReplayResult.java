@@ -0,0 +1,17 @@
+package com.onion.emailnotificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterReplayResult {
+    // Records republished to asteroid-alert by this call
+    private int replayed;
+    // Records still waiting on the dead-letter topic
+    private long remaining;
+}
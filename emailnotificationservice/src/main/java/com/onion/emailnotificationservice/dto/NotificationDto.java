@@ -0,0 +1,25 @@
+package com.onion.emailnotificationservice.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDto {
+    private Long id;
+    private String asteroidName;
+    private LocalDate closeApproachDate;
+    private BigDecimal missDistanceKilometers;
+    private double estimatedDiameterAvgMeters;
+    private boolean emailSent;
+    // When the alert was first stored by this service
+    private Instant persistedAt;
+}
@@ -0,0 +1,25 @@
+package com.onion.emailnotificationservice.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Optional filters of the notification history; null fields do not filter.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationFilter {
+    // Close approach date range, both ends inclusive
+    private LocalDate from;
+    private LocalDate to;
+    private Boolean emailSent;
+    private String namePrefix;
+    private BigDecimal minMissDistanceKilometers;
+}
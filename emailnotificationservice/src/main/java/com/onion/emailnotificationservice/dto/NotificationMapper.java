@@ -0,0 +1,25 @@
+package com.onion.emailnotificationservice.dto;
+
+import com.onion.emailnotificationservice.entity.Notification;
+
+/**
+ * Maps stored notifications to the {@link NotificationDto} shared by the history API and the
+ * webhook payload.
+ */
+public final class NotificationMapper {
+
+    private NotificationMapper() {
+    }
+
+    public static NotificationDto toDto(Notification notification) {
+        return NotificationDto.builder()
+                .id(notification.getId())
+                .asteroidName(notification.getAsteroidName())
+                .closeApproachDate(notification.getCloseApproachDate())
+                .missDistanceKilometers(notification.getMissDistanceKilometers())
+                .estimatedDiameterAvgMeters(notification.getEstimatedDiameterAvgMeters())
+                .emailSent(notification.isEmailSent())
+                .persistedAt(notification.getPersistedAt())
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.onion.emailnotificationservice.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPage {
+    private List<NotificationDto> items;
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+}
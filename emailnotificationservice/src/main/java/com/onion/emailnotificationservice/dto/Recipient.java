@@ -0,0 +1,19 @@
+package com.onion.emailnotificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read-only projection of a notification-enabled user, loaded without a managed User entity.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Recipient {
+    private Long id;
+    private String email;
+    private String fullName;
+}
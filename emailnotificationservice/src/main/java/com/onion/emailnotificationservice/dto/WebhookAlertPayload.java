@@ -0,0 +1,23 @@
+package com.onion.emailnotificationservice.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * JSON body posted to alert webhooks, one per delivery batch.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookAlertPayload {
+    private Long batchId;
+    // One-line summary for chat integrations that display a text field
+    private String text;
+    // Most urgent first
+    private List<NotificationDto> notifications;
+}
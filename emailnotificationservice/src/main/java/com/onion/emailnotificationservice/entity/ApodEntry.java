@@ -0,0 +1,40 @@
+package com.onion.emailnotificationservice.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted copy of NASA's Astronomy Picture of the Day, one row per date, so the picture
+ * survives restarts without calling NASA again.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "apod_cache")
+public class ApodEntry {
+    @Id
+    private LocalDate apodDate;
+
+    private String title;
+    private String url;
+    private String hdurl;
+    private String mediaType;
+    private String copyright;
+    private String serviceVersion;
+
+    @Lob
+    private String explanation;
+
+    private LocalDateTime fetchedAt;
+}
@@ -0,0 +1,74 @@
+package com.onion.emailnotificationservice.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outbox row: one alert to one destination for one delivery batch, e.g. an email to a user or a
+ * post to a webhook. Sending and retrying work from these rows, so a retry only resends the
+ * deliveries that actually failed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "delivery",
+        uniqueConstraints = @UniqueConstraint(name = "uk_delivery_batch_user", columnNames = {"batch_id", "user_id"}),
+        indexes = {
+                @Index(name = "idx_delivery_due", columnList = "status, next_attempt_at"),
+                // Claim order: per channel, most urgent first, see DeliveryRepository.findClaimable
+                @Index(name = "idx_delivery_channel_priority",
+                        columnList = "status, channel, close_approach_date, miss_distance_kilometers, id")
+        })
+public class Delivery {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq")
+    @SequenceGenerator(name = "delivery_seq", sequenceName = "delivery_seq", allocationSize = 50)
+    private Long id;
+
+    private Long batchId;
+
+    // AlertChannel that sends this delivery; rows queued before channels existed are emails (see the README backfill)
+    private String channel;
+
+    // Email deliveries: recipient snapshot taken when the batch was queued
+    private Long userId;
+    private String email;
+    private String fullName;
+
+    // Other channels: where to send, e.g. the webhook URL
+    private String destination;
+
+    // Priority, copied from the batch's most urgent notification: earliest close approach, then smallest miss distance
+    private LocalDate closeApproachDate;
+    private BigDecimal missDistanceKilometers;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus status;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    // Worker currently sending this delivery; other workers skip it until leaseUntil has passed
+    private String claimedBy;
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,42 @@
+package com.onion.emailnotificationservice.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A set of notifications mailed together. Every notification in the batch references it through
+ * deliveryBatchId, and every recipient gets one Delivery row for it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "delivery_batch")
+public class DeliveryBatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private int notificationCount;
+    private long recipientCount;
+    private LocalDateTime createdAt;
+
+    // Most urgent notification of the batch, which sets the priority of its deliveries
+    private LocalDate closeApproachDate;
+    private BigDecimal missDistanceKilometers;
+
+    // Set once no delivery of the batch is pending any more
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,7 @@
+package com.onion.emailnotificationservice.entity;
+
+public enum DeliveryStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
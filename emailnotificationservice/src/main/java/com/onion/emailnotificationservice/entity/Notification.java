@@ -1,13 +1,17 @@
 package com.onion.emailnotificationservice.entity;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,10 +22,20 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "notification")
+@Table(name = "notification", uniqueConstraints = @UniqueConstraint(
+        name = "uk_notification_asteroid_approach", columnNames = {"asteroid_name", "close_approach_date"}),
+        indexes = {
+                @Index(name = "idx_notification_unqueued_approach", columnList = "email_sent, delivery_batch_id, close_approach_date"),
+                // Keyset scans of the history API, newest approach first, optionally by sent state;
+                // id is listed so the page order is covered by the index on every database
+                @Index(name = "idx_notification_approach", columnList = "close_approach_date, id"),
+                @Index(name = "idx_notification_sent_approach", columnList = "email_sent, close_approach_date, id")
+        })
 public class Notification {
+    // Pooled sequence (a table on MySQL) instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_seq")
+    @SequenceGenerator(name = "notification_seq", sequenceName = "notification_seq", allocationSize = 50)
     private Long id;
 
     private String asteroidName;
@@ -29,4 +43,14 @@ public class Notification {
     private BigDecimal missDistanceKilometers;
     private double estimatedDiameterAvgMeters;
     private boolean emailSent;
+
+    // DeliveryBatch this notification was queued in; null until recipients have been queued
+    private Long deliveryBatchId;
+
+    // Pipeline timestamps of the event that first stored this asteroid, for latency tracking.
+    // Ingested/published come from NeoWs headers and are null for events without them.
+    private Instant ingestedAt;
+    private Instant publishedAt;
+    private Instant consumedAt;
+    private Instant persistedAt;
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.onion.emailnotificationservice.entity;
 
+import com.onion.emailnotificationservice.service.RecipientIndexListener;
+
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,7 +19,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "user")
+@EntityListeners(RecipientIndexListener.class)
+@Table(name = "user", indexes = @Index(name = "idx_user_notification_enabled", columnList = "notification_enabled, id"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
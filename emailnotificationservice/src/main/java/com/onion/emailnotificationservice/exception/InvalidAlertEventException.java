@@ -0,0 +1,12 @@
+package com.onion.emailnotificationservice.exception;
+
+/**
+ * An asteroid-alert record that can never be stored (missing fields, unparsable values or a
+ * payload that failed deserialization). Such records go straight to the dead-letter topic
+ * instead of through the retry topics.
+ */
+public class InvalidAlertEventException extends RuntimeException {
+    public InvalidAlertEventException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.onion.emailnotificationservice.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onion.emailnotificationservice.entity.ApodEntry;
+
+@Repository
+public interface ApodEntryRepository extends JpaRepository<ApodEntry, LocalDate> {
+
+    @Transactional
+    long deleteByApodDateBefore(LocalDate cutoff);
+}
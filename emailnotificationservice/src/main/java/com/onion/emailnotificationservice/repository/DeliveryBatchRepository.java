@@ -0,0 +1,21 @@
+package com.onion.emailnotificationservice.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import com.onion.emailnotificationservice.entity.DeliveryBatch;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface DeliveryBatchRepository extends JpaRepository<DeliveryBatch, Long> {
+    // Open batches not currently being completed by another instance
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<DeliveryBatch> findByCompletedAtIsNull();
+}
@@ -0,0 +1,74 @@
+package com.onion.emailnotificationservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.DeliveryStatus;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
+
+    // Due, unleased work of one channel, most urgent first: a walk of idx_delivery_channel_priority that stops
+    // after limit rows, so a backlog of one channel never sits in front of another. Rows locked by another
+    // worker's claim are skipped (FOR UPDATE SKIP LOCKED where the dialect supports it, a blocking FOR UPDATE otherwise)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM Delivery d WHERE d.status = :status AND d.channel = :channel AND d.nextAttemptAt <= :now "
+            + "AND (d.leaseUntil IS NULL OR d.leaseUntil < :now) "
+            + "ORDER BY d.closeApproachDate, d.missDistanceKilometers, d.id")
+    List<Delivery> findClaimable(@Param("status") DeliveryStatus status, @Param("channel") String channel,
+                                 @Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE Delivery d SET d.claimedBy = :workerId, d.leaseUntil = :leaseUntil WHERE d.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    boolean existsByStatusAndNextAttemptAtLessThanEqual(DeliveryStatus status, LocalDateTime now);
+
+    // Earliest next attempt after the given time, one range probe on idx_delivery_due
+    @Query("SELECT MIN(d.nextAttemptAt) FROM Delivery d WHERE d.status = :status AND d.nextAttemptAt > :after")
+    LocalDateTime findEarliestNextAttemptAfter(@Param("status") DeliveryStatus status, @Param("after") LocalDateTime after);
+
+    boolean existsByBatchIdAndStatus(Long batchId, DeliveryStatus status);
+
+    long countByBatchIdAndStatus(Long batchId, DeliveryStatus status);
+
+    // Outcome updates only apply while the caller still holds the claim and release it
+
+    @Modifying
+    @Query("UPDATE Delivery d SET d.status = :status, d.attempts = d.attempts + 1, d.sentAt = :sentAt, "
+            + "d.claimedBy = NULL, d.leaseUntil = NULL WHERE d.id IN :ids AND d.claimedBy = :workerId")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId,
+                 @Param("status") DeliveryStatus status, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE Delivery d SET d.attempts = d.attempts + 1, d.nextAttemptAt = :nextAttemptAt, "
+            + "d.claimedBy = NULL, d.leaseUntil = NULL WHERE d.id IN :ids AND d.claimedBy = :workerId")
+    int scheduleRetry(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    // Gives deliveries back untouched, e.g. when their channel had no room; they are due again right away
+    @Modifying
+    @Query("UPDATE Delivery d SET d.claimedBy = NULL, d.leaseUntil = NULL WHERE d.id IN :ids AND d.claimedBy = :workerId")
+    int release(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId);
+
+    @Modifying
+    @Query("UPDATE Delivery d SET d.status = :status, d.attempts = d.attempts + 1, "
+            + "d.claimedBy = NULL, d.leaseUntil = NULL WHERE d.id IN :ids AND d.claimedBy = :workerId")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId,
+                   @Param("status") DeliveryStatus status);
+}
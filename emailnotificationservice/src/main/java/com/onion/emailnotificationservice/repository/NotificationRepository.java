@@ -1,13 +1,48 @@
 package com.onion.emailnotificationservice.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.onion.emailnotificationservice.entity.Notification;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByEmailSent(boolean emailSent);
+public interface NotificationRepository extends JpaRepository<Notification, Long>, JpaSpecificationExecutor<Notification> {
+    // Unsent notifications that have not been queued for delivery yet, locked so that only one
+    // instance queues them; rows locked by another instance are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<Notification> findByEmailSentFalseAndDeliveryBatchIdIsNull();
+
+    boolean existsByEmailSentFalseAndDeliveryBatchIdIsNull();
+
+    // Unqueued notifications approaching on or before the given date; a range probe on idx_notification_unqueued_approach
+    boolean existsByEmailSentFalseAndDeliveryBatchIdIsNullAndCloseApproachDateLessThanEqual(LocalDate closeApproachDate);
+
+    // Most urgent first, the order they are listed in the email
+    List<Notification> findByDeliveryBatchIdOrderByCloseApproachDateAscMissDistanceKilometersAsc(Long deliveryBatchId);
+
+    @Query("SELECT n.id FROM Notification n WHERE n.deliveryBatchId = :deliveryBatchId")
+    List<Long> findIdsByDeliveryBatchId(@Param("deliveryBatchId") Long deliveryBatchId);
+
+    // One UPDATE for a whole chunk of ids; rows that are already sent are not touched
+    @Modifying
+    @Query("UPDATE Notification n SET n.emailSent = true WHERE n.id IN :ids AND n.emailSent = false")
+    int markEmailSent(@Param("ids") Collection<Long> ids);
+
+    // Candidate rows for a natural-key lookup; callers match name and date pairs in memory
+    List<Notification> findByAsteroidNameInAndCloseApproachDateIn(Collection<String> asteroidNames,
+                                                                 Collection<LocalDate> closeApproachDates);
 }
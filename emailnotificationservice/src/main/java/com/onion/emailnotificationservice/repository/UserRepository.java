@@ -2,17 +2,24 @@ package com.onion.emailnotificationservice.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.onion.emailnotificationservice.dto.Recipient;
 import com.onion.emailnotificationservice.entity.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    @Query("SELECT u.email FROM User u WHERE u.notificationEnabled = true")
-    List<String> findAllEmailsAndNotificationEnabled();
+    // Keyset page: next enabled users after the given id, served by idx_user_notification_enabled
+    @Query("SELECT new com.onion.emailnotificationservice.dto.Recipient(u.id, u.email, u.fullName) "
+            + "FROM User u WHERE u.notificationEnabled = true AND u.id > :afterId ORDER BY u.id")
+    List<Recipient> findEnabledRecipientsAfter(@Param("afterId") long afterId, Limit limit);
     
     List<User> findByEmail(String email);
+
+    boolean existsByNotificationEnabledTrue();
 }
@@ -0,0 +1,46 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.List;
+import java.util.Set;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+
+/**
+ * A way of delivering asteroid alerts, e.g. email or an HTTP webhook. Channels are Spring beans;
+ * {@link AlertDispatcher} routes every outbox delivery to the channel named in it and runs the send
+ * inside the channel's own {@link ChannelBulkhead}, so a slow channel only holds up its own deliveries.
+ */
+public interface AlertChannel {
+
+    String EMAIL = "email";
+
+    /**
+     * Name stored in Delivery.channel.
+     */
+    String getName();
+
+    ChannelBulkhead getBulkhead();
+
+    /**
+     * Destinations that get one delivery per batch, e.g. webhook URLs. Empty for channels that are
+     * addressed per user, which get one delivery per enabled recipient instead.
+     */
+    default List<String> getDestinations() {
+        return List.of();
+    }
+
+    /**
+     * Largest number of deliveries of one batch handed to a single {@link #send} call.
+     */
+    default int getMaxGroupSize() {
+        return 1;
+    }
+
+    /**
+     * Sends the alert of one batch to the destinations of the given deliveries, all of which belong
+     * to this channel and batch. Called on the channel's executor; may block.
+     *
+     * @return The ids of the deliveries that were not accepted; empty if all were.
+     */
+    Set<Long> send(List<Delivery> deliveries, AlertContent content);
+}
@@ -0,0 +1,33 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.onion.emailnotificationservice.entity.Notification;
+
+/**
+ * What every channel sends for one delivery batch: its notifications, most urgent first, and the
+ * shared part of the alert email, rendered once per batch and run.
+ *
+ * @param batchId       The delivery batch.
+ * @param notifications The batch's notifications; never empty.
+ * @param email         The rendered email, or null if rendering failed.
+ * @param ingestedAt    Earliest ingest time of the notifications, for latency tracking.
+ * @param persistedAt   Earliest persist time of the notifications, for latency tracking.
+ */
+public record AlertContent(Long batchId, List<Notification> notifications, RenderedEmail email,
+                           Instant ingestedAt, Instant persistedAt) {
+
+    public static AlertContent of(Long batchId, List<Notification> notifications, RenderedEmail email) {
+        return new AlertContent(batchId, notifications, email,
+                earliest(notifications, Notification::getIngestedAt),
+                earliest(notifications, Notification::getPersistedAt));
+    }
+
+    private static Instant earliest(List<Notification> notifications, Function<Notification, Instant> timestamp) {
+        return notifications.stream().map(timestamp).filter(Objects::nonNull).min(Comparator.naturalOrder()).orElse(null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Service;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routes claimed deliveries to their channels. Deliveries of the same channel and batch are handed
+ * over in groups of the channel's max group size, each group as one send in the channel's bulkhead.
+ * Submitting never blocks: when a channel's bulkhead is full its deliveries come back DEFERRED while
+ * the other channels carry on. The outcome of a send is only known once it returns.
+ */
+@Service
+@Slf4j
+public class AlertDispatcher {
+
+    public enum Outcome {
+        SENT,
+        FAILED,
+        // The channel had no room; the delivery was not attempted
+        DEFERRED
+    }
+
+    private final Map<String, AlertChannel> channels = new LinkedHashMap<>();
+
+    public AlertDispatcher(List<AlertChannel> channels) {
+        channels.forEach(channel -> this.channels.put(channel.getName(), channel));
+        log.info("Alert channels: {}", this.channels.keySet());
+    }
+
+    /**
+     * Sends every delivery through its channel.
+     *
+     * @param deliveries     Claimed deliveries.
+     * @param contentOfBatch The content of a delivery batch, or empty if it cannot be sent.
+     * @return One future per delivery, in order, completing when its send returns.
+     */
+    public List<CompletableFuture<Outcome>> dispatch(List<Delivery> deliveries,
+                                                     Function<Long, Optional<AlertContent>> contentOfBatch) {
+        Map<ChannelBatch, List<Integer>> indexesByChannelAndBatch = new LinkedHashMap<>();
+        for (int i = 0; i < deliveries.size(); i++) {
+            Delivery delivery = deliveries.get(i);
+            indexesByChannelAndBatch.computeIfAbsent(new ChannelBatch(channelOf(delivery), delivery.getBatchId()),
+                    key -> new ArrayList<>()).add(i);
+        }
+
+        List<CompletableFuture<Outcome>> outcomes = new ArrayList<>(Collections.nCopies(deliveries.size(), null));
+        indexesByChannelAndBatch.forEach((key, indexes) -> {
+            AlertChannel channel = channels.get(key.channel());
+            Optional<AlertContent> content = channel == null ? Optional.empty() : contentOfBatch.apply(key.batchId());
+            if (content.isEmpty()) {
+                if (channel == null) {
+                    log.error("No alert channel named {}, failing {} deliveries", key.channel(), indexes.size());
+                }
+                indexes.forEach(i -> outcomes.set(i, CompletableFuture.completedFuture(Outcome.FAILED)));
+                return;
+            }
+
+            int groupSize = Math.max(1, channel.getMaxGroupSize());
+            for (int from = 0; from < indexes.size(); from += groupSize) {
+                List<Integer> group = indexes.subList(from, Math.min(from + groupSize, indexes.size()));
+                List<Delivery> groupDeliveries = group.stream().map(deliveries::get).toList();
+                CompletableFuture<Set<Long>> notSent = channel.getBulkhead()
+                        .trySubmit(() -> channel.send(groupDeliveries, content.get()));
+                if (notSent == null) {
+                    group.forEach(i -> outcomes.set(i, CompletableFuture.completedFuture(Outcome.DEFERRED)));
+                    continue;
+                }
+
+                CompletableFuture<Set<Long>> settled = notSent.exceptionally(e -> {
+                    log.error("{} channel failed to send {} deliveries: {}", channel.getName(), groupDeliveries.size(),
+                            e.toString());
+                    Set<Long> all = new HashSet<>();
+                    groupDeliveries.forEach(delivery -> all.add(delivery.getId()));
+                    return all;
+                });
+                for (int i : group) {
+                    Long id = deliveries.get(i).getId();
+                    outcomes.set(i, settled.thenApply(failed -> failed.contains(id) ? Outcome.FAILED : Outcome.SENT));
+                }
+            }
+        });
+        return outcomes;
+    }
+
+    public Collection<AlertChannel> getChannels() {
+        return channels.values();
+    }
+
+    // Rows queued before channels existed are emails
+    private static String channelOf(Delivery delivery) {
+        return delivery.getChannel() != null ? delivery.getChannel() : AlertChannel.EMAIL;
+    }
+
+    private record ChannelBatch(String channel, Long batchId) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency of an asteroid alert through the pipeline, as the timer asteroid.alert.latency tagged
+ * by stage:
+ * - publish_to_consume: NeoWs handed the event to Kafka until a listener received it
+ * - consume_to_persist: received until the notification was committed
+ * - persist_to_send: committed until an alert email containing it was accepted by SMTP
+ * - ingest_to_send: NASA fetch until an alert email containing it was accepted by SMTP
+ *
+ * Percentiles (p50, p95, p99) are published alongside the histogram. Stages crossing services
+ * depend on their clocks being in sync; negative durations from clock skew are dropped.
+ */
+@Component
+public class AlertLatencyMetrics {
+
+    public enum Stage {
+        PUBLISH_TO_CONSUME("publish_to_consume"),
+        CONSUME_TO_PERSIST("consume_to_persist"),
+        PERSIST_TO_SEND("persist_to_send"),
+        INGEST_TO_SEND("ingest_to_send");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+
+    public AlertLatencyMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("asteroid.alert.latency")
+                    .description("Time an asteroid alert spends in each pipeline stage")
+                    .tag("stage", stage.tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofDays(1))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records the time between two pipeline timestamps. Does nothing if either is unknown.
+     */
+    public void record(Stage stage, Instant from, Instant to) {
+        if (from == null || to == null) {
+            return;
+        }
+        Duration latency = Duration.between(from, to);
+        if (!latency.isNegative()) {
+            timers.get(stage).record(latency);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import com.onion.emailnotificationservice.exception.InvalidAlertEventException;
+
+/**
+ * Names and delays of the topics a failed asteroid-alert record moves through.
+ *
+ * A record that fails on asteroid-alert is forwarded to asteroid-alert-retry-0, then -retry-1 and
+ * so on, each consumed only once its delay (notification.kafka.retry.delays-ms) has passed since
+ * the record was forwarded. After the last retry topic, or immediately if the record can never be
+ * processed, it lands on asteroid-alert-dlt until it is replayed.
+ */
+@Component
+public class AlertRetryTopics {
+
+    public static final String MAIN_TOPIC = "asteroid-alert";
+    public static final String DEAD_LETTER_TOPIC = MAIN_TOPIC + "-dlt";
+
+    private final long[] delaysMs;
+    private final String[] retryTopics;
+
+    public AlertRetryTopics(@Value("${notification.kafka.retry.delays-ms:10000,60000,300000}") long[] delaysMs) {
+        if (delaysMs.length == 0) {
+            throw new IllegalArgumentException("notification.kafka.retry.delays-ms needs at least one delay");
+        }
+        this.delaysMs = delaysMs.clone();
+        this.retryTopics = IntStream.range(0, delaysMs.length)
+                .mapToObj(i -> MAIN_TOPIC + "-retry-" + i)
+                .toArray(String[]::new);
+    }
+
+    public String[] getRetryTopics() {
+        return retryTopics.clone();
+    }
+
+    /**
+     * @return The retry topics followed by the dead-letter topic.
+     */
+    public List<String> getFailureTopics() {
+        return Stream.concat(Arrays.stream(retryTopics), Stream.of(DEAD_LETTER_TOPIC)).toList();
+    }
+
+    /**
+     * @return How long a record must wait on the given retry topic, or 0 for any other topic.
+     */
+    public long delayMs(String topic) {
+        int index = Arrays.asList(retryTopics).indexOf(topic);
+        return index < 0 ? 0 : delaysMs[index];
+    }
+
+    /**
+     * Picks the topic a failed record is forwarded to: the next retry topic, or the dead-letter
+     * topic once retries are used up or when retrying cannot help.
+     */
+    public String destinationFor(ConsumerRecord<?, ?> record, Exception exception) {
+        if (isUnprocessable(record, exception)) {
+            return DEAD_LETTER_TOPIC;
+        }
+        if (MAIN_TOPIC.equals(record.topic())) {
+            return retryTopics[0];
+        }
+        int index = Arrays.asList(retryTopics).indexOf(record.topic());
+        return index >= 0 && index + 1 < retryTopics.length ? retryTopics[index + 1] : DEAD_LETTER_TOPIC;
+    }
+
+    private static boolean isUnprocessable(ConsumerRecord<?, ?> record, Exception exception) {
+        if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+            return true;
+        }
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidAlertEventException || cause instanceof DeserializationException
+                    || cause instanceof ConversionException || cause instanceof MessageConversionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
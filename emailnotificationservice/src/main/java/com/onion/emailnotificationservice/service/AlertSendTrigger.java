@@ -0,0 +1,144 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides when alert email runs start, instead of polling the database on a fixed rate.
+ *
+ * Stored notifications raise a signal that is debounced: a run starts once no new notification has
+ * been stored for email.trigger.debounce-ms, but no later than email.trigger.max-delay-ms after the
+ * first one, so a burst of events becomes one run. A run that leaves deliveries waiting for a retry
+ * asks for another run when the earliest of them is due. A slow sweep every email.trigger.sweep-ms
+ * picks up anything no signal covers, such as notifications stored by another instance or deliveries
+ * whose claim expired.
+ *
+ * The alert run itself is looked up lazily because EmailService reports retries back to this trigger.
+ */
+@Component
+@Slf4j
+public class AlertSendTrigger {
+
+    private final TaskScheduler taskScheduler;
+    private final ObjectProvider<EmailService> emailService;
+    private final Duration debounce;
+    private final Duration maxDelay;
+    private final Clock clock;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private ScheduledFuture<?> debouncedRun;
+    private Instant burstStartedAt;
+    private long burstSequence;
+    private ScheduledFuture<?> retryRun;
+    private Instant retryRunAt;
+
+    @Autowired
+    public AlertSendTrigger(TaskScheduler taskScheduler,
+                            ObjectProvider<EmailService> emailService,
+                            @Value("${email.trigger.debounce-ms:2000}") long debounceMs,
+                            @Value("${email.trigger.max-delay-ms:10000}") long maxDelayMs) {
+        this(taskScheduler, emailService, debounceMs, maxDelayMs, Clock.systemUTC());
+    }
+
+    AlertSendTrigger(TaskScheduler taskScheduler, ObjectProvider<EmailService> emailService,
+                     long debounceMs, long maxDelayMs, Clock clock) {
+        this.taskScheduler = taskScheduler;
+        this.emailService = emailService;
+        this.debounce = Duration.ofMillis(Math.max(0, debounceMs));
+        this.maxDelay = Duration.ofMillis(Math.max(debounceMs, maxDelayMs));
+        this.clock = clock;
+    }
+
+    /**
+     * Signals that unsent notifications were committed. Restarts the debounce window.
+     */
+    public void notificationsStored() {
+        synchronized (lock) {
+            Instant now = clock.instant();
+            if (burstStartedAt == null) {
+                burstStartedAt = now;
+            }
+            Instant runAt = now.plus(debounce);
+            Instant latest = burstStartedAt.plus(maxDelay);
+            if (runAt.isAfter(latest)) {
+                runAt = latest;
+            }
+
+            if (debouncedRun != null) {
+                debouncedRun.cancel(false);
+            }
+            long burst = ++burstSequence;
+            debouncedRun = taskScheduler.schedule(() -> runDebounced(burst), runAt);
+        }
+    }
+
+    /**
+     * Asks for a run at the given time, unless one is already planned for then or earlier.
+     */
+    public void runAt(Instant at) {
+        synchronized (lock) {
+            if (retryRun != null && !retryRun.isDone() && !retryRunAt.isAfter(at)) {
+                return;
+            }
+            if (retryRun != null) {
+                retryRun.cancel(false);
+            }
+            retryRunAt = at;
+            retryRun = taskScheduler.schedule(() -> runForRetry(at), at);
+            log.debug("Next alert run for delivery retries at {}", at);
+        }
+    }
+
+    /**
+     * Safety net for work that raised no signal on this instance.
+     */
+    @Scheduled(fixedDelayString = "${email.trigger.sweep-ms:300000}",
+            initialDelayString = "${email.trigger.sweep-initial-delay-ms:10000}")
+    public void sweep() {
+        startRun("safety sweep");
+    }
+
+    private void runDebounced(long burst) {
+        synchronized (lock) {
+            // A later signal replaced this run but could not cancel it in time
+            if (burst != burstSequence) {
+                return;
+            }
+            debouncedRun = null;
+            burstStartedAt = null;
+        }
+        startRun("new notifications");
+    }
+
+    private void runForRetry(Instant at) {
+        synchronized (lock) {
+            if (at.equals(retryRunAt)) {
+                retryRun = null;
+                retryRunAt = null;
+            }
+        }
+        startRun("delivery retries due");
+    }
+
+    private void startRun(String reason) {
+        try {
+            log.info("Triggering asteroid alert email run: {}", reason);
+            // Returns at once; runs never overlap and triggers during a run are coalesced
+            emailService.getObject().sendAsteroidAlertEmail();
+        } catch (Exception e) {
+            log.error("Error triggering email run ({}): {}", reason, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Isolates the sends of one channel: they run on the channel's own executor and at most maxInFlight of
+ * them are running or queued at a time. The timeout is how long callers wait for a send's result.
+ *
+ * A full bulkhead refuses work instead of blocking the caller or running it on the caller's thread,
+ * so a channel whose destination is slow backs up only itself. A send keeps its thread and its slot
+ * until it returns, even after callers stopped waiting; the channel's transport timeouts bound how long
+ * that can be.
+ */
+public class ChannelBulkhead {
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final int capacity;
+    private final Duration timeout;
+
+    /**
+     * @param maxInFlight Sends running or queued at once. The executor must hold that many plus one per
+     *                    thread: a slot is free again before its thread has finished the task.
+     */
+    public ChannelBulkhead(Executor executor, int maxInFlight, Duration timeout) {
+        this.executor = executor;
+        this.capacity = Math.max(1, maxInFlight);
+        this.permits = new Semaphore(capacity);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Queues the send if the bulkhead has room.
+     *
+     * @return A future completing with the send's result once it returns, however long that takes;
+     *         null if the bulkhead is full.
+     */
+    public <T> CompletableFuture<T> trySubmit(Callable<T> send) {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T sent;
+                try {
+                    sent = send.call();
+                } catch (Exception e) {
+                    permits.release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                // The slot is free by the time anyone sees the result, so the caller can refill it right away
+                permits.release();
+                result.complete(sent);
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return null;
+        }
+        return result;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailableSlots() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,111 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes kafka.consumer.group.lag{group, topic}: records on the topic that the consumer group
+ * has not committed yet, summed over partitions. Read from the broker, so it covers every
+ * instance in the group and keeps reporting while this instance's consumers are stopped or
+ * rebalancing.
+ */
+@Component
+@Slf4j
+public class ConsumerLagMonitor {
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 5;
+
+    private final KafkaAdmin kafkaAdmin;
+    private final MeterRegistry meterRegistry;
+    private final List<String> groups;
+    private final Map<List<String>, AtomicLong> lagByGroupAndTopic = new ConcurrentHashMap<>();
+
+    private AdminClient adminClient;
+
+    public ConsumerLagMonitor(KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry,
+                              @Value("${notification.kafka.lag.groups:notification-service,notification-service-retry}") List<String> groups) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.meterRegistry = meterRegistry;
+        this.groups = List.copyOf(groups);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.kafka.lag.refresh-ms:30000}",
+            initialDelayString = "${notification.kafka.lag.refresh-ms:30000}")
+    public void refresh() {
+        for (String group : groups) {
+            try {
+                refreshGroup(group);
+            } catch (Exception e) {
+                log.warn("Could not refresh Kafka consumer lag for group {}: {}", group, e.getMessage());
+            }
+        }
+    }
+
+    private void refreshGroup(String group) throws Exception {
+        AdminClient admin = adminClient();
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (committed.isEmpty()) {
+            return;
+        }
+
+        Map<TopicPartition, OffsetSpec> latestSpec = new HashMap<>();
+        committed.keySet().forEach(partition -> latestSpec.put(partition, OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResultInfo> latest = admin.listOffsets(latestSpec)
+                .all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Map<String, Long> lagByTopic = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            ListOffsetsResultInfo end = latest.get(partition);
+            if (offset != null && end != null) {
+                lagByTopic.merge(partition.topic(), Math.max(0, end.offset() - offset.offset()), Long::sum);
+            }
+        });
+        lagByTopic.forEach((topic, lag) -> lagGauge(group, topic).set(lag));
+    }
+
+    private AtomicLong lagGauge(String group, String topic) {
+        return lagByGroupAndTopic.computeIfAbsent(List.of(group, topic), key -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder("kafka.consumer.group.lag", lag, AtomicLong::get)
+                    .description("Records on the topic not yet committed by the consumer group")
+                    .tags("group", group, "topic", topic)
+                    .register(meterRegistry);
+            return lag;
+        });
+    }
+
+    private synchronized AdminClient adminClient() {
+        if (adminClient == null) {
+            adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        }
+        return adminClient;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (adminClient != null) {
+            adminClient.close(Duration.ofSeconds(ADMIN_TIMEOUT_SECONDS));
+        }
+    }
+}
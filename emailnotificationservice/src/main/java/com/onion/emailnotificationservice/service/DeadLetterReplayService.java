@@ -0,0 +1,141 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Service;
+
+import com.onion.emailnotificationservice.dto.DeadLetterReplayResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Re-drives dead-lettered asteroid-alert records, e.g. after the bug or outage that sent them
+ * there is fixed. Records are copied back to asteroid-alert as the original key and bytes, without
+ * the failure headers, and the replay position is committed for the notification-dlt-replay group
+ * so each call continues where the previous one stopped.
+ *
+ * Storing is idempotent, so a record republished twice (e.g. a replay that failed half-way before
+ * committing) does no harm. A record that fails again goes back through the retry topics.
+ */
+@Service
+@Slf4j
+public class DeadLetterReplayService {
+
+    private static final String REPLAY_GROUP = "notification-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final int maxRecords;
+
+    public DeadLetterReplayService(ConsumerFactory<Object, Object> consumerFactory,
+                                   KafkaTemplate<Object, Object> kafkaTemplate,
+                                   @Value("${notification.kafka.dlt.replay-max-records:10000}") int maxRecords) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.maxRecords = Math.max(1, maxRecords);
+    }
+
+    /**
+     * Republishes up to limit dead-lettered records, oldest first. Only records already on the
+     * topic when the call starts are considered, so records that fail again are not replayed twice.
+     *
+     * @param limit Maximum records to replay, capped at notification.kafka.dlt.replay-max-records.
+     * @return How many records were replayed and how many are left.
+     */
+    public synchronized DeadLetterReplayResult replay(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        final int max = Math.min(limit, maxRecords);
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP, null, null, replayConsumerProperties(max))) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(AlertRetryTopics.DEAD_LETTER_TOPIC);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return DeadLetterReplayResult.builder().replayed(0).remaining(0).build();
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, Long> startOffsets = new HashMap<>();
+            partitions.forEach(partition -> startOffsets.put(partition, consumer.position(partition)));
+
+            Map<TopicPartition, OffsetAndMetadata> replayedUpTo = new HashMap<>();
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            while (sends.size() < max && !reachedEnd(consumer, partitions, endOffsets)) {
+                for (ConsumerRecord<Object, Object> record : consumer.poll(POLL_TIMEOUT)) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (sends.size() >= max || record.offset() >= endOffsets.get(partition)) {
+                        continue; // left for the next call, its offset is not committed
+                    }
+                    sends.add(kafkaTemplate.send(toMainTopic(record)));
+                    replayedUpTo.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                }
+            }
+
+            // Only move the replay position once every republished record is acknowledged
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+            consumer.commitSync(replayedUpTo);
+
+            long remaining = 0;
+            for (TopicPartition partition : partitions) {
+                long replayedTo = replayedUpTo.containsKey(partition) ? replayedUpTo.get(partition).offset() : startOffsets.get(partition);
+                remaining += Math.max(0, endOffsets.get(partition) - replayedTo);
+            }
+            log.info("Replayed {} dead-lettered asteroid alerts to {}, {} remaining",
+                    sends.size(), AlertRetryTopics.MAIN_TOPIC, remaining);
+            return DeadLetterReplayResult.builder().replayed(sends.size()).remaining(remaining).build();
+        }
+    }
+
+    private static Properties replayConsumerProperties(int max) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(Math.min(max, 500)));
+        return properties;
+    }
+
+    private static boolean reachedEnd(Consumer<?, ?> consumer, List<TopicPartition> partitions, Map<TopicPartition, Long> endOffsets) {
+        return partitions.stream().allMatch(partition -> consumer.position(partition) >= endOffsets.get(partition));
+    }
+
+    // Same key and payload bytes; failure details and deserializer errors from earlier attempts are dropped
+    private static ProducerRecord<Object, Object> toMainTopic(ConsumerRecord<Object, Object> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("kafka_dlt-")
+                    && !header.key().equals(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)
+                    && !header.key().equals(SerializationUtils.KEY_DESERIALIZER_EXCEPTION_HEADER)) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(AlertRetryTopics.MAIN_TOPIC, null, record.key(), record.value(), headers);
+    }
+}
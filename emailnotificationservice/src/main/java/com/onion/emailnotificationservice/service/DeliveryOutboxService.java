@@ -0,0 +1,293 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.DeliveryBatch;
+import com.onion.emailnotificationservice.entity.DeliveryStatus;
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.repository.DeliveryBatchRepository;
+import com.onion.emailnotificationservice.repository.DeliveryRepository;
+import com.onion.emailnotificationservice.repository.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-recipient delivery outbox.
+ *
+ * New notifications are queued as a DeliveryBatch with one PENDING email Delivery per enabled recipient,
+ * plus one per destination of every other {@link AlertChannel}, e.g. each configured webhook URL.
+ * Senders pick up due deliveries in chunks and report the outcome: successes become SENT, failures
+ * are rescheduled with exponential backoff until max attempts is reached and then become FAILED.
+ * A batch's notifications are marked as sent once none of its deliveries is pending any more.
+ *
+ * Due deliveries are claimed per channel, most urgent first. A batch is as urgent as its nearest notification:
+ * earliest close approach date, then smallest miss distance. Every delivery carries that priority, so
+ * a newly queued near-miss batch overtakes the remaining deliveries of a large routine batch.
+ *
+ * Several instances can share the outbox. Each claims a chunk of due deliveries by locking the rows
+ * (FOR UPDATE SKIP LOCKED on MySQL) and stamping them with its worker id and a lease. Claimed rows are
+ * invisible to other workers until the lease expires, so deliveries of a crashed worker are picked up
+ * again after email.delivery.lease-ms. Outcomes are only recorded while the worker still holds the claim.
+ */
+@Service
+@Slf4j
+public class DeliveryOutboxService {
+
+    private static final Comparator<Notification> MOST_URGENT_FIRST = Comparator
+            .comparing(Notification::getCloseApproachDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Notification::getMissDistanceKilometers, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NotificationProcessor notificationProcessor;
+    private final RecipientSource recipientSource;
+    private final ObjectProvider<AlertChannel> alertChannels;
+    private final UserRepository userRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final DeliveryBatchRepository deliveryBatchRepository;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration lease;
+    private final String workerId;
+
+    public DeliveryOutboxService(NotificationProcessor notificationProcessor,
+                                 RecipientSource recipientSource,
+                                 ObjectProvider<AlertChannel> alertChannels,
+                                 UserRepository userRepository,
+                                 DeliveryRepository deliveryRepository,
+                                 DeliveryBatchRepository deliveryBatchRepository,
+                                 EntityManager entityManager,
+                                 @Value("${email.delivery.chunk-size:500}") int chunkSize,
+                                 @Value("${email.delivery.max-attempts:5}") int maxAttempts,
+                                 @Value("${email.delivery.retry-backoff-ms:60000}") long retryBackoffMs,
+                                 @Value("${email.delivery.max-retry-backoff-ms:3600000}") long maxRetryBackoffMs,
+                                 @Value("${email.delivery.lease-ms:300000}") long leaseMs,
+                                 @Value("${email.delivery.worker-id:}") String workerId) {
+        this.notificationProcessor = notificationProcessor;
+        this.recipientSource = recipientSource;
+        this.alertChannels = alertChannels;
+        this.userRepository = userRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.deliveryBatchRepository = deliveryBatchRepository;
+        this.entityManager = entityManager;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMs);
+        this.maxRetryBackoff = Duration.ofMillis(Math.max(retryBackoffMs, maxRetryBackoffMs));
+        this.lease = Duration.ofMillis(leaseMs);
+        this.workerId = workerId == null || workerId.isBlank() ? UUID.randomUUID().toString() : workerId;
+        log.info("Delivery outbox worker id {}", this.workerId);
+    }
+
+    /**
+     * Queues all unsent, not yet queued notifications as one batch with a delivery per enabled recipient
+     * and per destination of the other alert channels. Notifications stay unqueued only while there is
+     * neither.
+     *
+     * @return The new batch, or null if there was nothing to queue.
+     */
+    @Transactional
+    public DeliveryBatch enqueueUnsentNotifications() {
+        List<Notification> notifications = notificationProcessor.getUnsentNotifications();
+        if (notifications.isEmpty()) {
+            return null;
+        }
+        boolean hasDestinations = alertChannels.orderedStream().anyMatch(channel -> !channel.getDestinations().isEmpty());
+        if (!hasDestinations && !userRepository.existsByNotificationEnabledTrue()) {
+            log.info("No users with email notifications enabled and no other alert destinations, leaving {} "
+                    + "notifications unqueued", notifications.size());
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Notification mostUrgent = notifications.stream().min(MOST_URGENT_FIRST).orElseThrow();
+        DeliveryBatch batch = deliveryBatchRepository.save(DeliveryBatch.builder()
+                .notificationCount(notifications.size())
+                .createdAt(now)
+                .closeApproachDate(mostUrgent.getCloseApproachDate())
+                .missDistanceKilometers(mostUrgent.getMissDistanceKilometers())
+                .build());
+        notifications.forEach(notification -> notification.setDeliveryBatchId(batch.getId()));
+
+        long recipientCount = recipientSource.forEachPage(page -> {
+            deliveryRepository.saveAll(page.stream()
+                    .map(recipient -> Delivery.builder()
+                            .batchId(batch.getId())
+                            .channel(AlertChannel.EMAIL)
+                            .userId(recipient.getId())
+                            .email(recipient.getEmail())
+                            .fullName(recipient.getFullName())
+                            .closeApproachDate(batch.getCloseApproachDate())
+                            .missDistanceKilometers(batch.getMissDistanceKilometers())
+                            .status(DeliveryStatus.PENDING)
+                            .attempts(0)
+                            .nextAttemptAt(now)
+                            .createdAt(now)
+                            .build())
+                    .toList());
+            // Keep the persistence context bounded by one page of deliveries
+            entityManager.flush();
+            entityManager.clear();
+        });
+
+        alertChannels.orderedStream().forEach(channel -> channel.getDestinations().forEach(destination ->
+                deliveryRepository.save(Delivery.builder()
+                        .batchId(batch.getId())
+                        .channel(channel.getName())
+                        .destination(destination)
+                        .closeApproachDate(batch.getCloseApproachDate())
+                        .missDistanceKilometers(batch.getMissDistanceKilometers())
+                        .status(DeliveryStatus.PENDING)
+                        .attempts(0)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build())));
+
+        batch.setRecipientCount(recipientCount);
+        deliveryBatchRepository.save(batch);
+        log.info("Queued delivery batch {} with {} notifications for {} recipients, most urgent approach {} at {} km",
+                batch.getId(), notifications.size(), recipientCount, batch.getCloseApproachDate(), batch.getMissDistanceKilometers());
+        return batch;
+    }
+
+    public boolean hasDueDeliveries() {
+        return deliveryRepository.existsByStatusAndNextAttemptAtLessThanEqual(DeliveryStatus.PENDING, LocalDateTime.now());
+    }
+
+    /**
+     * Claims the next chunk of due deliveries of one channel, most urgent first, for this worker.
+     *
+     * @param channel Name of the AlertChannel.
+     * @param max     Most deliveries to claim, e.g. what the channel has room for; capped at the chunk size.
+     * @return The claimed deliveries; empty when the channel has no unclaimed due work left.
+     */
+    @Transactional
+    public List<Delivery> claimDueDeliveries(String channel, int max) {
+        if (max <= 0) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Delivery> claimable = deliveryRepository.findClaimable(DeliveryStatus.PENDING, channel, now,
+                Limit.of(Math.min(max, chunkSize)));
+        if (!claimable.isEmpty()) {
+            deliveryRepository.claim(ids(claimable), workerId, now.plus(lease));
+        }
+        return claimable;
+    }
+
+    /**
+     * Records the outcome of one send attempt per delivery with a handful of set-based updates:
+     * one for the successes, one for exhausted deliveries and one per distinct retry delay.
+     *
+     * @param succeeded Deliveries that were accepted by the mail server.
+     * @param failed    Deliveries whose attempt failed.
+     */
+    @Transactional
+    public void recordResults(List<Delivery> succeeded, List<Delivery> failed) {
+        LocalDateTime now = LocalDateTime.now();
+        int recorded = 0;
+        if (!succeeded.isEmpty()) {
+            recorded += deliveryRepository.markSent(ids(succeeded), workerId, DeliveryStatus.SENT, now);
+        }
+
+        List<Delivery> exhausted = new ArrayList<>();
+        Map<Integer, List<Delivery>> retriesByAttempt = new TreeMap<>();
+        for (Delivery delivery : failed) {
+            int attempt = delivery.getAttempts() + 1;
+            if (attempt >= maxAttempts) {
+                exhausted.add(delivery);
+            } else {
+                retriesByAttempt.computeIfAbsent(attempt, k -> new ArrayList<>()).add(delivery);
+            }
+        }
+
+        if (!exhausted.isEmpty()) {
+            recorded += deliveryRepository.markFailed(ids(exhausted), workerId, DeliveryStatus.FAILED);
+            log.warn("{} deliveries failed permanently after {} attempts", exhausted.size(), maxAttempts);
+        }
+        for (Map.Entry<Integer, List<Delivery>> retries : retriesByAttempt.entrySet()) {
+            recorded += deliveryRepository.scheduleRetry(ids(retries.getValue()), workerId,
+                    now.plus(backoffFor(retries.getKey())));
+        }
+
+        int expected = succeeded.size() + failed.size();
+        if (recorded < expected) {
+            log.warn("Lease expired for {} of {} deliveries before their results were recorded; another worker owns them now",
+                    expected - recorded, expected);
+        }
+    }
+
+    /**
+     * Gives claimed deliveries back without recording an attempt, so they are claimed again right away.
+     */
+    @Transactional
+    public void releaseClaims(List<Delivery> deliveries) {
+        if (!deliveries.isEmpty()) {
+            deliveryRepository.release(ids(deliveries), workerId);
+        }
+    }
+
+    /**
+     * When the next pending delivery that is not due yet becomes due, i.e. the next scheduled retry.
+     * Deliveries that are already due but claimed by another worker are not considered.
+     *
+     * @return The time, or empty if no delivery is waiting for a retry.
+     */
+    public Optional<LocalDateTime> nextAttemptAt() {
+        return Optional.ofNullable(deliveryRepository.findEarliestNextAttemptAfter(DeliveryStatus.PENDING, LocalDateTime.now()));
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Closes every open batch that has no pending deliveries left and marks its notifications as sent.
+     *
+     * @return The number of batches completed.
+     */
+    @Transactional
+    public int completeFinishedBatches() {
+        int completed = 0;
+        for (DeliveryBatch batch : deliveryBatchRepository.findByCompletedAtIsNull()) {
+            if (deliveryRepository.existsByBatchIdAndStatus(batch.getId(), DeliveryStatus.PENDING)) {
+                continue;
+            }
+            notificationProcessor.markNotificationIdsAsSent(notificationProcessor.getNotificationIdsForBatch(batch.getId()));
+            batch.setCompletedAt(LocalDateTime.now());
+            deliveryBatchRepository.save(batch);
+            completed++;
+
+            log.info("Delivery batch {} completed: {} sent, {} failed", batch.getId(),
+                    deliveryRepository.countByBatchIdAndStatus(batch.getId(), DeliveryStatus.SENT),
+                    deliveryRepository.countByBatchIdAndStatus(batch.getId(), DeliveryStatus.FAILED));
+        }
+        return completed;
+    }
+
+    private Duration backoffFor(int attempt) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+
+    private static List<Long> ids(List<Delivery> deliveries) {
+        return deliveries.stream().map(Delivery::getId).toList();
+    }
+}
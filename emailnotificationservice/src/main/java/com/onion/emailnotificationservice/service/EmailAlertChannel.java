@@ -0,0 +1,92 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alert emails, one delivery per enabled user. Sends run on the mail send executor.
+ *
+ * By default every recipient gets the email with their own greeting. With email.delivery.grouped.enabled
+ * the greeting is the default one and up to email.delivery.grouped.size recipients of a batch share one
+ * SMTP transaction; see {@link EmailSenderService#sendGroupedHtmlEmail}.
+ */
+@Component
+@Slf4j
+public class EmailAlertChannel implements AlertChannel {
+
+    static final String ALERT_SUBJECT = "NASA Space Watch - Weekly Asteroid Alert";
+
+    private final EmailSenderService emailSenderService;
+    private final ChannelBulkhead bulkhead;
+    private final boolean groupedSending;
+    private final int groupSize;
+
+    public EmailAlertChannel(EmailSenderService emailSenderService,
+                             @Qualifier("mailSendExecutor") Executor mailSendExecutor,
+                             @Value("${email.send.threads:4}") int threads,
+                             @Value("${email.send.queue-capacity:200}") int queueCapacity,
+                             @Value("${email.send.timeout-ms:120000}") long timeoutMs,
+                             @Value("${email.delivery.grouped.enabled:false}") boolean groupedSending,
+                             @Value("${email.delivery.grouped.size:50}") int groupSize) {
+        this.emailSenderService = emailSenderService;
+        this.bulkhead = new ChannelBulkhead(mailSendExecutor, threads + queueCapacity, Duration.ofMillis(timeoutMs));
+        this.groupedSending = groupedSending;
+        this.groupSize = Math.max(1, groupSize);
+    }
+
+    @Override
+    public String getName() {
+        return EMAIL;
+    }
+
+    @Override
+    public ChannelBulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    @Override
+    public int getMaxGroupSize() {
+        return groupedSending ? groupSize : 1;
+    }
+
+    @Override
+    public Set<Long> send(List<Delivery> deliveries, AlertContent content) {
+        Set<Long> failed = new HashSet<>();
+        if (content.email() == null) {
+            deliveries.forEach(delivery -> failed.add(delivery.getId()));
+            return failed;
+        }
+
+        if (!groupedSending) {
+            for (Delivery delivery : deliveries) {
+                // Only the greeting differs between users
+                byte[] personalizedHtmlContent = content.email().personalize(delivery.getFullName());
+                if (!emailSenderService.sendHtmlEmail(delivery.getEmail(), ALERT_SUBJECT, personalizedHtmlContent)) {
+                    failed.add(delivery.getId());
+                }
+            }
+            return failed;
+        }
+
+        // A delivery fails only if the server did not accept its own recipient
+        Set<String> rejected = emailSenderService.sendGroupedHtmlEmail(
+                deliveries.stream().map(Delivery::getEmail).toList(), ALERT_SUBJECT, content.email().personalize(null));
+        for (Delivery delivery : deliveries) {
+            if (rejected.contains(delivery.getEmail())) {
+                failed.add(delivery.getId());
+            }
+        }
+        return failed;
+    }
+}
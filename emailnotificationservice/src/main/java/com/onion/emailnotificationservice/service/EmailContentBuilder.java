@@ -19,77 +19,56 @@ public class EmailContentBuilder {
         this.nasaApodService = nasaApodService;
     }
 
-    public String buildEmailContent(List<Notification> notifications, String userName) {
+    /**
+     * Builds the parts of the alert email that are identical for every recipient (asteroid cards,
+     * APOD section, layout) once per send run. Callers personalize it per user with
+     * {@link RenderedEmail#personalize(String)}.
+     *
+     * @return The rendered email, or null if there is nothing to send or rendering failed.
+     */
+    public RenderedEmail buildSharedEmail(List<Notification> notifications) {
         if (notifications == null || notifications.isEmpty()) {
             return null;
         }
 
         try {
-            // Build asteroid content
-            String asteroidContent = buildAsteroidContent(notifications);
-            
-            // Build APOD content
-            String apodContent = buildApodContent();
-            
-            // Create the complete email HTML
-            return EmailTemplate.createEmailHtml(asteroidContent, apodContent, java.time.LocalDateTime.now(), userName);
-            
-        } catch (Exception e) {
-            log.error("Critical error building email content: {}", e.getMessage(), e);
-            return null;
-        }
-    }
-    
-    // Backward compatibility method
-    public String buildEmailContent(List<Notification> notifications) {
-        if (notifications == null || notifications.isEmpty()) {
-            return null;
-        }
-
-        try {
-            // Build asteroid content
-            String asteroidContent = buildAsteroidContent(notifications);
-            
-            // Build APOD content
-            String apodContent = buildApodContent();
-            
-            // Create the complete email HTML with default greeting
-            return EmailTemplate.createEmailHtml(asteroidContent, apodContent, java.time.LocalDateTime.now(), null);
-            
+            HtmlBuffer asteroidCards = new HtmlBuffer();
+            writeAsteroidCards(asteroidCards, notifications);
+            HtmlBuffer apodSection = new HtmlBuffer(4096);
+            writeApodSection(apodSection);
+            return EmailTemplate.createSharedEmail(asteroidCards, apodSection, java.time.LocalDateTime.now());
         } catch (Exception e) {
             log.error("Critical error building email content: {}", e.getMessage(), e);
             return null;
         }
     }
 
-    private String buildAsteroidContent(List<Notification> notifications) {
-        StringBuilder asteroidContent = new StringBuilder();
-        
+    private void writeAsteroidCards(HtmlBuffer out, List<Notification> notifications) {
         notifications.forEach(notification -> {
+            int cardStart = out.size();
             try {
-                String asteroidCard = EmailTemplate.createAsteroidCardHtml(
+                double missDistance = notification.getMissDistanceKilometers().doubleValue();
+                EmailTemplate.writeAsteroidCard(out,
                     notification.getAsteroidName(),
                     notification.getCloseApproachDate().toString(),
                     notification.getEstimatedDiameterAvgMeters(),
-                    notification.getMissDistanceKilometers().doubleValue(),
-                    EmailTemplate.getRiskLevelHtml(notification.getMissDistanceKilometers().doubleValue())
+                    missDistance,
+                    EmailTemplate.getRiskLevelHtml(missDistance)
                 );
-                asteroidContent.append(asteroidCard);
             } catch (Exception e) {
+                out.truncate(cardStart); // drop a half-written card
                 log.error("Error processing notification {} for HTML generation: {}", 
                         notification.getId(), e.getMessage(), e);
             }
         });
-        
-        return asteroidContent.toString();
     }
 
-    private String buildApodContent() {
+    private void writeApodSection(HtmlBuffer out) {
         try {
             ApodResponse apod = nasaApodService.getApodForToday();
             if (apod != null && "image".equals(apod.getMediaType())) {
                 log.info("Successfully fetched APOD: {}", apod.getTitle());
-                return EmailTemplate.createApodSectionHtml(
+                EmailTemplate.writeApodSection(out,
                     apod.getTitle(),
                     apod.getUrl(),
                     apod.getExplanation(),
@@ -101,7 +80,5 @@ public class EmailContentBuilder {
             log.warn("Failed to fetch APOD, continuing without it: {}", e.getMessage());
             // Continue without APOD - it's not critical
         }
-        
-        return null;
     }
 }
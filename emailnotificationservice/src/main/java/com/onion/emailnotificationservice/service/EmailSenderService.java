@@ -1,16 +1,28 @@
 package com.onion.emailnotificationservice.service;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import jakarta.activation.DataHandler;
+import jakarta.mail.Address;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.ByteArrayDataSource;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -21,9 +33,18 @@ public class EmailSenderService {
     private String fromEmail;
 
     private final JavaMailSender mailSender;
+    private final SmtpTransportPool transportPool;
+    private final SmtpRateGovernor rateGovernor;
+    private final Executor mailSendExecutor;
 
-    public EmailSenderService(JavaMailSender mailSender) {
+    public EmailSenderService(JavaMailSender mailSender,
+                              SmtpTransportPool transportPool,
+                              SmtpRateGovernor rateGovernor,
+                              @Qualifier("mailSendExecutor") Executor mailSendExecutor) {
         this.mailSender = mailSender;
+        this.transportPool = transportPool;
+        this.rateGovernor = rateGovernor;
+        this.mailSendExecutor = mailSendExecutor;
     }
 
     public EmailSendResult sendBulkEmails(List<String> toEmails, String htmlContent) {
@@ -31,7 +52,7 @@ public class EmailSenderService {
         AtomicInteger failedEmails = new AtomicInteger(0);
         String subject = "NASA Asteroid Alert - Close Approach Detected";
         List<CompletableFuture<Boolean>> emailFutures = toEmails.stream()
-            .map((String toEmail) -> CompletableFuture.supplyAsync(() -> sendHtmlEmail(toEmail, subject, htmlContent)))
+            .map((String toEmail) -> CompletableFuture.supplyAsync(() -> sendHtmlEmail(toEmail, subject, htmlContent), mailSendExecutor))
             .toList();
 
         // Wait for all emails to complete
@@ -55,33 +76,167 @@ public class EmailSenderService {
     }
 
     public boolean sendHtmlEmail(String toEmail, String subject, String htmlContent) {
+        return sendWithRetry(toEmail, subject, (message, helper) -> helper.setText(htmlContent, true));
+    }
+
+    /**
+     * Sends an HTML body that is already UTF-8 encoded, avoiding a String round trip for
+     * bodies produced by {@link RenderedEmail}.
+     */
+    public boolean sendHtmlEmail(String toEmail, String subject, byte[] htmlUtf8) {
+        return sendWithRetry(toEmail, subject, (message, helper) -> message.setDataHandler(
+                new DataHandler(new ByteArrayDataSource(htmlUtf8, "text/html; charset=UTF-8"))));
+    }
+
+    /**
+     * Sends one pre-encoded HTML email to a group of recipients in a single SMTP transaction, with
+     * one RCPT TO per recipient and none of them in a header (as for Bcc). Recipients the server
+     * rejects are reported individually; the others are sent without them. Transient failures of the
+     * whole transaction are retried like single sends.
+     *
+     * @return The recipients that were not sent to; empty if the server accepted all of them.
+     */
+    public Set<String> sendGroupedHtmlEmail(List<String> toEmails, String subject, byte[] htmlUtf8) {
+        Set<String> rejected = new HashSet<>();
+        Map<Address, String> pending = new LinkedHashMap<>();
+        for (String toEmail : toEmails) {
+            try {
+                pending.put(new InternetAddress(toEmail, true), toEmail);
+            } catch (AddressException e) {
+                log.error("Invalid recipient address {}: {}", toEmail, e.getMessage());
+                rejected.add(toEmail);
+            }
+        }
+
+        int maxRetries = 3;
+        int retryCount = 0;
+        while (!pending.isEmpty()) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+                message.setHeader("To", "undisclosed-recipients:;");
+                helper.setFrom(fromEmail);
+                helper.setSubject(subject);
+                message.setDataHandler(new DataHandler(new ByteArrayDataSource(htmlUtf8, "text/html; charset=UTF-8")));
+                // One transaction counts as one message against the provider's rate
+                rateGovernor.acquire();
+                transportPool.send(message, pending.keySet().toArray(new Address[0]));
+                rateGovernor.onSuccess();
+                log.info("Grouped HTML email sent successfully to {} recipients (attempt {})", pending.size(), retryCount + 1);
+                pending.clear();
+            } catch (MessagingException e) {
+                if (e instanceof SendFailedException failed && dropRejected(failed, pending, rejected)) {
+                    // Refused recipients are reported, the rest is sent again without them
+                    continue;
+                }
+                retryCount++;
+                int replyCode = SmtpRateGovernor.replyCode(e);
+                if (replyCode >= 500) {
+                    log.error("SMTP server permanently rejected grouped email to {} recipients ({}): {}",
+                            pending.size(), replyCode, e.getMessage());
+                    break;
+                }
+                log.warn("Failed to send grouped HTML email to {} recipients (attempt {}/{}): {}",
+                        pending.size(), retryCount, maxRetries, e.getMessage());
+                if (retryCount >= maxRetries) {
+                    log.error("Failed to send grouped HTML email to {} recipients after {} attempts: {}",
+                            pending.size(), maxRetries, e.getMessage(), e);
+                    break;
+                }
+                try {
+                    if (replyCode >= 400) {
+                        rateGovernor.onThrottled(replyCode);
+                    } else {
+                        Thread.sleep(1000 * retryCount);
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    log.error("Interrupted while waiting for grouped email retry to {} recipients", pending.size());
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while waiting to send grouped email to {} recipients", pending.size());
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error sending grouped email to {} recipients: {}", pending.size(), e.getMessage(), e);
+                break;
+            }
+        }
+        rejected.addAll(pending.values());
+        return rejected;
+    }
+
+    /**
+     * Moves the recipients the server refused from pending to rejected, and drops those it already
+     * sent to when partial sends are enabled (mail.smtp.sendpartial).
+     *
+     * @return Whether any recipient was removed from pending; if not, sending again would fail the same way.
+     */
+    private static boolean dropRejected(SendFailedException e, Map<Address, String> pending, Set<String> rejected) {
+        if (e.getInvalidAddresses() == null || e.getInvalidAddresses().length == 0) {
+            return false;
+        }
+        int pendingBefore = pending.size();
+        for (Address invalid : e.getInvalidAddresses()) {
+            String toEmail = pending.remove(invalid);
+            if (toEmail != null) {
+                log.error("SMTP server rejected recipient {}: {}", toEmail, e.getMessage());
+                rejected.add(toEmail);
+            }
+        }
+        if (e.getValidSentAddresses() != null) {
+            for (Address sent : e.getValidSentAddresses()) {
+                pending.remove(sent);
+            }
+        }
+        return pending.size() < pendingBefore;
+    }
+
+    private boolean sendWithRetry(String toEmail, String subject, BodyWriter bodyWriter) {
         int maxRetries = 3;
         int retryCount = 0;
         while (retryCount < maxRetries) {
             try {
                 MimeMessage message = mailSender.createMimeMessage();
-                MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+                MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
                 helper.setTo(toEmail);
                 helper.setFrom(fromEmail);
                 helper.setSubject(subject);
-                helper.setText(htmlContent, true);
-                mailSender.send(message);
+                bodyWriter.write(message, helper);
+                rateGovernor.acquire();
+                transportPool.send(message);
+                rateGovernor.onSuccess();
                 log.info("HTML email sent successfully to: {} (attempt {})", toEmail, retryCount + 1);
                 return true;
             } catch (MessagingException e) {
                 retryCount++;
+                int replyCode = SmtpRateGovernor.replyCode(e);
+                if (replyCode >= 500) {
+                    log.error("SMTP server permanently rejected email to {} ({}): {}", toEmail, replyCode, e.getMessage());
+                    return false;
+                }
                 log.warn("Failed to send HTML email to {} (attempt {}/{}): {}", toEmail, retryCount, maxRetries, e.getMessage());
                 if (retryCount >= maxRetries) {
                     log.error("Failed to send HTML email to {} after {} attempts: {}", toEmail, maxRetries, e.getMessage(), e);
                     return false;
                 }
                 try {
-                    Thread.sleep(1000 * retryCount);
+                    if (replyCode >= 400) {
+                        // Provider throttling: the governor slows everyone down, the next acquire() waits
+                        rateGovernor.onThrottled(replyCode);
+                    } else {
+                        Thread.sleep(1000 * retryCount);
+                    }
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     log.error("Interrupted while waiting for email retry to {}", toEmail);
                     return false;
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while waiting to send email to {}", toEmail);
+                return false;
             } catch (Exception e) {
                 log.error("Unexpected error sending email to {}: {}", toEmail, e.getMessage(), e);
                 return false;
@@ -90,6 +245,11 @@ public class EmailSenderService {
         return false;
     }
 
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(MimeMessage message, MimeMessageHelper helper) throws MessagingException;
+    }
+
     public static class EmailSendResult {
         private final int successfulCount;
         private final int failedCount;
@@ -1,12 +1,26 @@
 package com.onion.emailnotificationservice.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import com.onion.emailnotificationservice.repository.UserRepository;
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.Notification;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -14,103 +28,240 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class EmailService {
 
-    private final UserRepository userRepository;
+    private final DeliveryOutboxService deliveryOutboxService;
     private final NotificationProcessor notificationProcessor;
     private final EmailContentBuilder emailContentBuilder;
     private final EmailSenderService emailSenderService;
+    private final AlertLatencyMetrics latencyMetrics;
+    private final AlertSendTrigger alertSendTrigger;
+    private final AlertDispatcher alertDispatcher;
+    private final int urgentWithinDays;
 
-    public EmailService(UserRepository userRepository,
+    private final AtomicBoolean runInProgress = new AtomicBoolean(false);
+    private final AtomicBoolean rerunRequested = new AtomicBoolean(false);
+
+    public EmailService(DeliveryOutboxService deliveryOutboxService,
                         NotificationProcessor notificationProcessor,
                         EmailContentBuilder emailContentBuilder,
-                        EmailSenderService emailSenderService) {
-        this.userRepository = userRepository;
+                        EmailSenderService emailSenderService,
+                        AlertLatencyMetrics latencyMetrics,
+                        AlertSendTrigger alertSendTrigger,
+                        AlertDispatcher alertDispatcher,
+                        @Value("${email.delivery.urgent-within-days:1}") int urgentWithinDays) {
+        this.deliveryOutboxService = deliveryOutboxService;
         this.notificationProcessor = notificationProcessor;
         this.emailContentBuilder = emailContentBuilder;
         this.emailSenderService = emailSenderService;
+        this.latencyMetrics = latencyMetrics;
+        this.alertSendTrigger = alertSendTrigger;
+        this.alertDispatcher = alertDispatcher;
+        this.urgentWithinDays = urgentWithinDays;
     }
 
-    @Async
+    /**
+     * Sends due asteroid alert emails on the alert run executor. Runs never overlap: a trigger that
+     * arrives while a run is in progress is coalesced into one follow-up run.
+     */
+    @Async("alertRunExecutor")
     public void sendAsteroidAlertEmail() {
+        rerunRequested.set(true);
+        while (rerunRequested.get() && runInProgress.compareAndSet(false, true)) {
+            try {
+                rerunRequested.set(false);
+                runAsteroidAlertEmail();
+                scheduleNextAttempt();
+            } finally {
+                runInProgress.set(false);
+            }
+        }
+    }
+
+    private void runAsteroidAlertEmail() {
         LocalDateTime startTime = LocalDateTime.now();
         log.info("Starting asteroid alert email process at {}", startTime);
 
         try {
-            // Step 1: Check if there are notifications to send
-            if (!notificationProcessor.hasUnsentNotifications()) {
+            // Step 1: Cheap indexed checks so idle ticks never load any rows
+            boolean hasNewNotifications = notificationProcessor.hasUnsentNotifications();
+            if (!hasNewNotifications && !deliveryOutboxService.hasDueDeliveries()) {
                 log.info("No asteroid alerts to send at {}", LocalDateTime.now());
                 return;
             }
 
-            // Step 2: Get users with notifications enabled
-            List<com.onion.emailnotificationservice.entity.User> usersWithNotifications = userRepository.findAll().stream()
-                .filter(user -> user.isNotificationEnabled())
-                .toList();
-            
-            if (usersWithNotifications.isEmpty()) {
-                log.info("No users with email notifications enabled at {}", LocalDateTime.now());
-                return;
-            }
-            log.info("Found {} users with notifications enabled", usersWithNotifications.size());
-
-            // Step 3: Get notifications
-            List<com.onion.emailnotificationservice.entity.Notification> notifications = 
-                notificationProcessor.getUnsentNotifications();
-            
-            if (notifications == null || notifications.isEmpty()) {
-                log.warn("No notifications to send");
-                return;
+            // Step 2: Queue one delivery per recipient for notifications that arrived since the last run
+            if (hasNewNotifications) {
+                deliveryOutboxService.enqueueUnsentNotifications();
             }
 
-            // Step 4: Send personalized emails to each user
-            log.info("Preparing to send {} notifications to {} users", notifications.size(), usersWithNotifications.size());
-            
+            // Step 3: Claim due deliveries channel by channel, most urgent first and as many as the channel has room
+            // for, and record outcomes as the sends return; failed ones are rescheduled, not resent to everyone
+            Map<Long, Optional<AlertContent>> contentByBatch = new HashMap<>();
+            InFlightDeliveries inFlight = new InFlightDeliveries(late -> recordOutcomes(late, contentByBatch));
+            Set<AlertChannel> full;
+            // Channels that gave deliveries back, not claimed for again until one of their sends returns
+            Set<String> deferring = new HashSet<>();
             int successfulEmails = 0;
             int failedEmails = 0;
-            
-            for (com.onion.emailnotificationservice.entity.User user : usersWithNotifications) {
-                try {
-                    // Build personalized email content for each user
-                    String personalizedHtmlContent = emailContentBuilder.buildEmailContent(notifications, user.getFullName());
-                    
-                    if (personalizedHtmlContent != null) {
-                        // Send email to individual user
-                        emailSenderService.sendHtmlEmail(user.getEmail(), "NASA Space Watch - Weekly Asteroid Alert", personalizedHtmlContent);
-                        successfulEmails++;
-                        log.debug("Successfully sent personalized email to user: {}", user.getEmail());
-                    } else {
-                        log.warn("Failed to build personalized email content for user: {}", user.getEmail());
-                        failedEmails++;
+
+            try {
+                while (true) {
+                    boolean claimed = false;
+                    full = new HashSet<>();
+                    for (AlertChannel channel : alertDispatcher.getChannels()) {
+                        ChannelBulkhead bulkhead = channel.getBulkhead();
+                        // A channel is topped up once half its slots are free, so claims and updates stay set-based
+                        if (deferring.contains(channel.getName()) || bulkhead.getAvailableSlots() * 2 < bulkhead.getCapacity()) {
+                            full.add(channel);
+                            continue;
+                        }
+                        List<Delivery> due = deliveryOutboxService.claimDueDeliveries(channel.getName(),
+                                bulkhead.getAvailableSlots() * Math.max(1, channel.getMaxGroupSize()));
+                        if (due.isEmpty()) {
+                            continue;
+                        }
+
+                        // The content of a batch is built once per run
+                        List<CompletableFuture<AlertDispatcher.Outcome>> outcomes = alertDispatcher.dispatch(due,
+                                batchId -> contentByBatch.computeIfAbsent(batchId, this::loadBatch));
+                        for (int i = 0; i < due.size(); i++) {
+                            inFlight.add(due.get(i), outcomes.get(i), bulkhead.getTimeout());
+                        }
+                        // Deferred deliveries are given back; the channel is tried again once a send of it returns
+                        if (outcomes.stream().anyMatch(outcome -> outcome.getNow(null) == AlertDispatcher.Outcome.DEFERRED)) {
+                            deferring.add(channel.getName());
+                            full.add(channel);
+                        }
+                        claimed |= outcomes.stream().anyMatch(outcome -> outcome.getNow(null) != AlertDispatcher.Outcome.DEFERRED);
+                    }
+
+                    // Outcomes are recorded as they come in; the run only waits for them when no channel took more work.
+                    // Deferred outcomes arrive at once and free no room, so waiting goes on until a send returns
+                    boolean returned = false;
+                    List<InFlightDeliveries.Completed> done;
+                    do {
+                        done = inFlight.take(!claimed);
+                        recordOutcomes(done, contentByBatch);
+                        successfulEmails += count(done, AlertDispatcher.Outcome.SENT);
+                        failedEmails += count(done, AlertDispatcher.Outcome.FAILED);
+                        for (InFlightDeliveries.Completed completed : done) {
+                            if (completed.outcome() != AlertDispatcher.Outcome.DEFERRED) {
+                                deferring.remove(channelOf(completed.delivery()));
+                                returned = true;
+                            }
+                        }
+                    } while (!claimed && !returned && !done.isEmpty());
+                    // Nothing claimed and no send left to wait for; deferred channels get a later run below
+                    if (!claimed && !returned) {
+                        break;
+                    }
+
+                    // Urgent alerts that arrived during the run are queued now and claimed ahead of the rest of it
+                    if (hasUrgentUnsentNotifications()) {
+                        log.info("Urgent asteroid alerts arrived during the run, queuing them ahead of pending deliveries");
+                        deliveryOutboxService.enqueueUnsentNotifications();
                     }
-                } catch (Exception e) {
-                    log.error("Failed to send email to user {}: {}", user.getEmail(), e.getMessage());
-                    failedEmails++;
                 }
+            } finally {
+                recordOutcomes(inFlight.close(), contentByBatch);
+            }
+
+            // Channels that were still busy, or gave deliveries back, get another run once their sends must have given up
+            Optional<Duration> busyFor = full.stream().map(channel -> channel.getBulkhead().getTimeout()).max(Duration::compareTo);
+            if (busyFor.isPresent() && deliveryOutboxService.hasDueDeliveries()) {
+                log.warn("Alert channels {} had no room for all due deliveries, running again in {} s",
+                        full.stream().map(AlertChannel::getName).toList(), busyFor.get().toSeconds());
+                alertSendTrigger.runAt(Instant.now().plus(busyFor.get()));
             }
-            
+
             EmailSenderService.EmailSendResult result = new EmailSenderService.EmailSendResult(successfulEmails, failedEmails);
-            
-            log.info("Email sending completed: {} successful, {} failed", 
+            log.info("Alert sending completed: {} successful, {} failed", 
                     result.getSuccessfulCount(), result.getFailedCount());
 
-            // Step 5: Mark notifications as sent only if at least one email was successful
-            if (result.hasSuccessfulEmails()) {
-                notificationProcessor.markNotificationsAsSent(notifications);
-                log.info("Marked {} notifications as sent after successful email delivery", notifications.size());
-            } else {
-                log.error("No emails were sent successfully. Notifications will remain unsent for retry.");
-            }
+            // Step 4: Notifications are marked as sent once none of their deliveries is pending
+            deliveryOutboxService.completeFinishedBatches();
 
             LocalDateTime endTime = LocalDateTime.now();
             log.info("Asteroid alert email process completed at {} (Duration: {} seconds)", 
                     endTime, java.time.Duration.between(startTime, endTime).getSeconds());
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Asteroid alert email process interrupted; unrecorded deliveries are claimed again once their lease expires");
         } catch (Exception e) {
             log.error("Critical error in sendAsteroidAlertEmail: {}", e.getMessage(), e);
-            // Don't mark notifications as sent if there's a critical error
+            // Deliveries that were not recorded stay pending and are picked up by the next run
+        }
+    }
+
+    // Sent and failed deliveries are recorded with set-based updates; deferred ones are given back untouched
+    private void recordOutcomes(List<InFlightDeliveries.Completed> completed, Map<Long, Optional<AlertContent>> contentByBatch) {
+        List<Delivery> succeeded = new ArrayList<>();
+        List<Delivery> failed = new ArrayList<>();
+        List<Delivery> deferred = new ArrayList<>();
+        for (InFlightDeliveries.Completed done : completed) {
+            Delivery delivery = done.delivery();
+            switch (done.outcome()) {
+                case SENT -> {
+                    succeeded.add(delivery);
+                    recordSendLatency(delivery, contentByBatch.get(delivery.getBatchId()));
+                }
+                case FAILED -> failed.add(delivery);
+                case DEFERRED -> deferred.add(delivery);
+            }
+        }
+        if (!succeeded.isEmpty() || !failed.isEmpty()) {
+            deliveryOutboxService.recordResults(succeeded, failed);
+        }
+        deliveryOutboxService.releaseClaims(deferred);
+    }
+
+    private static String channelOf(Delivery delivery) {
+        return delivery.getChannel() != null ? delivery.getChannel() : AlertChannel.EMAIL;
+    }
+
+    private static int count(List<InFlightDeliveries.Completed> completed, AlertDispatcher.Outcome outcome) {
+        return (int) completed.stream().filter(done -> done.outcome() == outcome).count();
+    }
+
+    // Deliveries left waiting for a retry get a run when the first of them is due, rather than at the next sweep
+    private void scheduleNextAttempt() {
+        try {
+            deliveryOutboxService.nextAttemptAt().ifPresent(nextAttemptAt ->
+                    alertSendTrigger.runAt(nextAttemptAt.atZone(ZoneId.systemDefault()).toInstant()));
+        } catch (Exception e) {
+            log.error("Failed to schedule the next delivery attempt: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean hasUrgentUnsentNotifications() {
+        return urgentWithinDays >= 0
+                && notificationProcessor.hasUnsentNotificationsApproachingBy(LocalDate.now().plusDays(urgentWithinDays));
+    }
+
+    /**
+     * The notifications of a batch with its shared email rendered; empty if the batch has no notifications.
+     * A failed rendering leaves the email null, which fails the email deliveries but not the other channels.
+     */
+    private Optional<AlertContent> loadBatch(Long batchId) {
+        List<Notification> notifications = notificationProcessor.getNotificationsForBatch(batchId);
+        if (notifications.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(AlertContent.of(batchId, notifications, emailContentBuilder.buildSharedEmail(notifications)));
+    }
+
+    // One sample per sent email, measured from the asteroid in it that has waited longest
+    private void recordSendLatency(Delivery delivery, Optional<AlertContent> content) {
+        boolean email = AlertChannel.EMAIL.equals(channelOf(delivery));
+        if (!email || content == null || content.isEmpty()) {
+            return;
         }
+        Instant sentAt = Instant.now();
+        latencyMetrics.record(AlertLatencyMetrics.Stage.PERSIST_TO_SEND, content.get().persistedAt(), sentAt);
+        latencyMetrics.record(AlertLatencyMetrics.Stage.INGEST_TO_SEND, content.get().ingestedAt(), sentAt);
     }
 
-    @Async
+    @Async("transactionalMailExecutor")
     public void sendWelcomeEmailAsync(String email, String fullName) {
         String subject = "Welcome to NASA Space Watch!";
         String htmlContent = "<html><body>"
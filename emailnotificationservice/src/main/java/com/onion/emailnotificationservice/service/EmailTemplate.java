@@ -1,143 +1,196 @@
 package com.onion.emailnotificationservice.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Renders the alert email. All constant markup is encoded to UTF-8 once, at class load, and
+ * copied into an {@link HtmlBuffer} as byte blocks; only names, dates, numbers and the APOD text
+ * are encoded per render. The String-returning methods render into a per-thread buffer that is
+ * reused across calls.
+ */
 public class EmailTemplate {
-    
-    public static String createEmailHtml(String asteroidContent, String apodContent, LocalDateTime generatedTime, String userName) {
-        StringBuilder htmlContent = new StringBuilder();
-        htmlContent.append("<!DOCTYPE html>");
-        htmlContent.append("<html lang=\"en\">");
-        htmlContent.append("<head>");
-        htmlContent.append("<meta charset=\"UTF-8\">");
-        htmlContent.append("<meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">");
-        htmlContent.append("<title>NASA Space Watch Weekly</title>");
-        htmlContent.append("<style>");
-        
-        // More natural, less perfect styling
-        htmlContent.append("body { font-family: Georgia, 'Times New Roman', serif; margin: 0; padding: 20px; background: #fafaf9; color: #2c2c2c; line-height: 1.6; }");
-        htmlContent.append(".container { max-width: 650px; margin: 0 auto; background: #ffffff; border: 1px solid #ddd; }");
-        htmlContent.append(".header { background: #2b4c85; color: #fff; padding: 25px 30px; border-bottom: 3px solid #1e3a5f; }");
-        htmlContent.append(".header h1 { margin: 0 0 8px 0; font-size: 28px; font-weight: normal; }");
-        htmlContent.append(".header .subtitle { margin: 0; font-size: 14px; color: #b8c5d1; font-style: italic; }");
-        htmlContent.append(".content { padding: 30px; }");
-        htmlContent.append(".intro { background: #fff3cd; border-left: 4px solid #ffc107; padding: 15px 20px; margin-bottom: 25px; font-size: 15px; }");
-        htmlContent.append(".section-header { font-size: 20px; color: #2b4c85; margin: 30px 0 15px 0; border-bottom: 2px solid #e9ecef; padding-bottom: 5px; }");
-        htmlContent.append(".asteroid-item { background: #f8f9fa; border: 1px solid #dee2e6; margin-bottom: 20px; padding: 20px; }");
-        htmlContent.append(".asteroid-name { font-size: 18px; font-weight: bold; color: #495057; margin-bottom: 12px; }");
-        htmlContent.append(".details-grid { display: table; width: 100%; }");
-        htmlContent.append(".detail-row { display: table-row; }");
-        htmlContent.append(".detail-label, .detail-value { display: table-cell; padding: 6px 0; vertical-align: top; }");
-        htmlContent.append(".detail-label { font-weight: bold; width: 35%; color: #666; padding-right: 15px; }");
-        htmlContent.append(".detail-value { color: #333; }");
-        htmlContent.append(".space-photo { border: 1px solid #ccc; margin: 25px 0; padding: 15px; background: #fdfdfd; }");
-        htmlContent.append(".photo-title { font-size: 18px; color: #2b4c85; margin-bottom: 15px; text-align: center; }");
-        htmlContent.append(".photo-img { width: 100%; height: auto; border: 1px solid #ddd; margin-bottom: 15px; }");
-        htmlContent.append(".photo-desc { font-size: 14px; color: #555; text-align: justify; margin-bottom: 10px; }");
-        htmlContent.append(".photo-meta { font-size: 12px; color: #888; text-align: center; border-top: 1px solid #eee; padding-top: 10px; }");
-        htmlContent.append(".footer { background: #f1f3f4; padding: 20px 30px; font-size: 12px; color: #666; border-top: 1px solid #ddd; }");
-        htmlContent.append(".footer p { margin: 5px 0; }");
-        htmlContent.append(".risk-high { color: #d73527; font-weight: bold; }");
-        htmlContent.append(".risk-medium { color: #f57c00; font-weight: bold; }");
-        htmlContent.append(".risk-low { color: #2e7d32; font-weight: bold; }");
-        htmlContent.append("@media (max-width: 600px) {");
-        htmlContent.append("  body { padding: 10px; }");
-        htmlContent.append("  .container { border: none; }");
-        htmlContent.append("  .content { padding: 20px 15px; }");
-        htmlContent.append("  .details-grid { display: block; }");
-        htmlContent.append("  .detail-row { display: block; margin-bottom: 8px; }");
-        htmlContent.append("  .detail-label, .detail-value { display: block; width: 100%; padding: 2px 0; }");
-        htmlContent.append("}");
-        htmlContent.append("</style>");
-        htmlContent.append("</head>");
-        htmlContent.append("<body>");
-        htmlContent.append("<div class=\"container\">");
-        htmlContent.append("<div class=\"header\">");
-        htmlContent.append("<h1>NASA Space Watch</h1>");
-        htmlContent.append("<div class=\"subtitle\">Weekly Near-Earth Object Report</div>");
-        htmlContent.append("</div>");
-        htmlContent.append("<div class=\"content\">");
-        htmlContent.append("<div class=\"intro\">");
-        htmlContent.append("Hello ").append(userName != null ? userName : "Space Enthusiast");
-        htmlContent.append("! This week we're tracking several interesting objects making close approaches to Earth. ");
-        htmlContent.append("While none pose any immediate threat, they provide valuable opportunities for scientific observation.");
-        htmlContent.append("</div>");
-        
-        if (asteroidContent != null && !asteroidContent.isEmpty()) {
-            htmlContent.append("<div class=\"section-header\">This Week's Close Approaches</div>");
-            htmlContent.append(asteroidContent);
-        }
-        
-        if (apodContent != null && !apodContent.isEmpty()) {
-            htmlContent.append(apodContent);
+
+    private static final String DEFAULT_USER_NAME = "Space Enthusiast";
+
+    private static final DateTimeFormatter REPORT_TIME_FORMAT = DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' h:mm a");
+
+    private static final ThreadLocal<HtmlBuffer> BUFFER = ThreadLocal.withInitial(HtmlBuffer::new);
+
+    // Everything up to and including "Hello "
+    private static final byte[] DOCUMENT_START = utf8(
+            "<!DOCTYPE html>"
+            + "<html lang=\"en\">"
+            + "<head>"
+            + "<meta charset=\"UTF-8\">"
+            + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">"
+            + "<title>NASA Space Watch Weekly</title>"
+            + "<style>"
+            // More natural, less perfect styling
+            + "body { font-family: Georgia, 'Times New Roman', serif; margin: 0; padding: 20px; background: #fafaf9; color: #2c2c2c; line-height: 1.6; }"
+            + ".container { max-width: 650px; margin: 0 auto; background: #ffffff; border: 1px solid #ddd; }"
+            + ".header { background: #2b4c85; color: #fff; padding: 25px 30px; border-bottom: 3px solid #1e3a5f; }"
+            + ".header h1 { margin: 0 0 8px 0; font-size: 28px; font-weight: normal; }"
+            + ".header .subtitle { margin: 0; font-size: 14px; color: #b8c5d1; font-style: italic; }"
+            + ".content { padding: 30px; }"
+            + ".intro { background: #fff3cd; border-left: 4px solid #ffc107; padding: 15px 20px; margin-bottom: 25px; font-size: 15px; }"
+            + ".section-header { font-size: 20px; color: #2b4c85; margin: 30px 0 15px 0; border-bottom: 2px solid #e9ecef; padding-bottom: 5px; }"
+            + ".asteroid-item { background: #f8f9fa; border: 1px solid #dee2e6; margin-bottom: 20px; padding: 20px; }"
+            + ".asteroid-name { font-size: 18px; font-weight: bold; color: #495057; margin-bottom: 12px; }"
+            + ".details-grid { display: table; width: 100%; }"
+            + ".detail-row { display: table-row; }"
+            + ".detail-label, .detail-value { display: table-cell; padding: 6px 0; vertical-align: top; }"
+            + ".detail-label { font-weight: bold; width: 35%; color: #666; padding-right: 15px; }"
+            + ".detail-value { color: #333; }"
+            + ".space-photo { border: 1px solid #ccc; margin: 25px 0; padding: 15px; background: #fdfdfd; }"
+            + ".photo-title { font-size: 18px; color: #2b4c85; margin-bottom: 15px; text-align: center; }"
+            + ".photo-img { width: 100%; height: auto; border: 1px solid #ddd; margin-bottom: 15px; }"
+            + ".photo-desc { font-size: 14px; color: #555; text-align: justify; margin-bottom: 10px; }"
+            + ".photo-meta { font-size: 12px; color: #888; text-align: center; border-top: 1px solid #eee; padding-top: 10px; }"
+            + ".footer { background: #f1f3f4; padding: 20px 30px; font-size: 12px; color: #666; border-top: 1px solid #ddd; }"
+            + ".footer p { margin: 5px 0; }"
+            + ".risk-high { color: #d73527; font-weight: bold; }"
+            + ".risk-medium { color: #f57c00; font-weight: bold; }"
+            + ".risk-low { color: #2e7d32; font-weight: bold; }"
+            + "@media (max-width: 600px) {"
+            + "  body { padding: 10px; }"
+            + "  .container { border: none; }"
+            + "  .content { padding: 20px 15px; }"
+            + "  .details-grid { display: block; }"
+            + "  .detail-row { display: block; margin-bottom: 8px; }"
+            + "  .detail-label, .detail-value { display: block; width: 100%; padding: 2px 0; }"
+            + "}"
+            + "</style>"
+            + "</head>"
+            + "<body>"
+            + "<div class=\"container\">"
+            + "<div class=\"header\">"
+            + "<h1>NASA Space Watch</h1>"
+            + "<div class=\"subtitle\">Weekly Near-Earth Object Report</div>"
+            + "</div>"
+            + "<div class=\"content\">"
+            + "<div class=\"intro\">"
+            + "Hello ");
+
+    private static final byte[] INTRO_END = utf8(
+            "! This week we're tracking several interesting objects making close approaches to Earth. "
+            + "While none pose any immediate threat, they provide valuable opportunities for scientific observation."
+            + "</div>");
+    private static final byte[] SECTION_HEADER = utf8("<div class=\"section-header\">This Week's Close Approaches</div>");
+    private static final byte[] FOOTER_START = utf8(
+            "</div>"
+            + "<div class=\"footer\">"
+            + "<p><strong>NASA's Center for Near Earth Object Studies (CNEOS)</strong></p>"
+            + "<p>Report generated on ");
+    private static final byte[] DOCUMENT_END = utf8(
+            "</p>"
+            + "<p>Data provided by JPL's Small-Body Database and NASA's Astronomy Picture of the Day</p>"
+            + "</div>"
+            + "</div>"
+            + "</body>"
+            + "</html>");
+
+    private static final byte[] CARD_START = utf8("<div class=\"asteroid-item\"><div class=\"asteroid-name\">");
+    private static final byte[] CARD_APPROACH = utf8("</div><div class=\"details-grid\">"
+            + "<div class=\"detail-row\"><div class=\"detail-label\">Closest Approach:</div><div class=\"detail-value\">");
+    private static final byte[] CARD_SIZE = utf8("</div></div>"
+            + "<div class=\"detail-row\"><div class=\"detail-label\">Estimated Size:</div><div class=\"detail-value\">");
+    private static final byte[] CARD_DISTANCE = utf8("</div></div>"
+            + "<div class=\"detail-row\"><div class=\"detail-label\">Distance at Closest:</div><div class=\"detail-value\">");
+    private static final byte[] CARD_ASSESSMENT = utf8("</div></div>"
+            + "<div class=\"detail-row\"><div class=\"detail-label\">Assessment:</div><div class=\"detail-value\">");
+    private static final byte[] CARD_END = utf8("</div></div></div></div>");
+
+    private static final byte[] APOD_START = utf8("<div class=\"space-photo\">"
+            + "<div class=\"photo-title\">Featured Space Image</div><img src=\"");
+    private static final byte[] APOD_ALT = utf8("\" alt=\"");
+    private static final byte[] APOD_TITLE = utf8("\" class=\"photo-img\"><div class=\"photo-desc\"><strong>");
+    private static final byte[] APOD_EXPLANATION = utf8("</strong><br><br>");
+    private static final byte[] APOD_DATE = utf8("</div><div class=\"photo-meta\">Image Date: ");
+    private static final byte[] APOD_CREDIT = utf8(" • Credit: ");
+    private static final byte[] APOD_END = utf8("</div></div>");
+
+    private static final byte[] KM = utf8(" km");
+    private static final byte[] METERS = utf8(" meters");
+    private static final byte[] KM_OPEN = utf8(" km (");
+    private static final byte[] LUNAR_DISTANCES_CLOSE = utf8(" lunar distances)");
+    private static final byte[] UNKNOWN_OBJECT = utf8("Unknown Object");
+
+    /**
+     * Renders everything except the recipient's name once, as UTF-8 bytes, so a send run can
+     * produce each personalized email with a single array copy. The sections are the output of
+     * {@link #writeAsteroidCard} and {@link #writeApodSection}; either may be empty.
+     */
+    public static RenderedEmail createSharedEmail(HtmlBuffer asteroidCards, HtmlBuffer apodSection, LocalDateTime generatedTime) {
+        HtmlBuffer out = BUFFER.get().reset();
+        writeIntro(out);
+        if (asteroidCards.size() > 0) {
+            out.write(SECTION_HEADER).write(asteroidCards);
         }
-        
-        htmlContent.append("</div>");
-        htmlContent.append("<div class=\"footer\">");
-        htmlContent.append("<p><strong>NASA's Center for Near Earth Object Studies (CNEOS)</strong></p>");
-        htmlContent.append("<p>Report generated on ").append(formatDateTime(generatedTime)).append("</p>");
-        htmlContent.append("<p>Data provided by JPL's Small-Body Database and NASA's Astronomy Picture of the Day</p>");
-        htmlContent.append("</div>");
-        htmlContent.append("</div>");
-        htmlContent.append("</body>");
-        htmlContent.append("</html>");
-        
-        return htmlContent.toString();
-    }
-    
-    public static String createAsteroidCardHtml(String asteroidName, String closeApproachDate, 
+        out.write(apodSection);
+        writeFooter(out, generatedTime);
+        return new RenderedEmail(DOCUMENT_START, out.toByteArray(), DEFAULT_USER_NAME);
+    }
+
+    private static void writeIntro(HtmlBuffer out) {
+        out.write(INTRO_END);
+    }
+
+    private static void writeFooter(HtmlBuffer out, LocalDateTime generatedTime) {
+        out.write(FOOTER_START);
+        out.writeRaw(REPORT_TIME_FORMAT.format(generatedTime));
+        out.write(DOCUMENT_END);
+    }
+
+    public static String createAsteroidCardHtml(String asteroidName, String closeApproachDate,
                                               double estimatedDiameter, double missDistance, String riskLevel) {
-        StringBuilder card = new StringBuilder();
-        card.append("<div class=\"asteroid-item\">");
-        card.append("<div class=\"asteroid-name\">").append(cleanAsteroidName(asteroidName)).append("</div>");
-        card.append("<div class=\"details-grid\">");
-        
-        card.append("<div class=\"detail-row\">");
-        card.append("<div class=\"detail-label\">Closest Approach:</div>");
-        card.append("<div class=\"detail-value\">").append(escapeHtml(closeApproachDate)).append("</div>");
-        card.append("</div>");
-        
-        card.append("<div class=\"detail-row\">");
-        card.append("<div class=\"detail-label\">Estimated Size:</div>");
-        card.append("<div class=\"detail-value\">").append(formatDiameter(estimatedDiameter)).append("</div>");
-        card.append("</div>");
-        
-        card.append("<div class=\"detail-row\">");
-        card.append("<div class=\"detail-label\">Distance at Closest:</div>");
-        card.append("<div class=\"detail-value\">").append(formatDistance(missDistance)).append("</div>");
-        card.append("</div>");
-        
-        card.append("<div class=\"detail-row\">");
-        card.append("<div class=\"detail-label\">Assessment:</div>");
-        card.append("<div class=\"detail-value\">").append(riskLevel).append("</div>");
-        card.append("</div>");
-        
-        card.append("</div>");
-        card.append("</div>");
-        return card.toString();
-    }
-    
-    public static String createApodSectionHtml(String title, String imageUrl, String explanation, 
+        HtmlBuffer out = BUFFER.get().reset();
+        writeAsteroidCard(out, asteroidName, closeApproachDate, estimatedDiameter, missDistance, riskLevel);
+        return out.toString();
+    }
+
+    public static void writeAsteroidCard(HtmlBuffer out, String asteroidName, String closeApproachDate,
+                                         double estimatedDiameter, double missDistance, String riskLevel) {
+        out.write(CARD_START);
+        writeCleanAsteroidName(out, asteroidName);
+        out.write(CARD_APPROACH);
+        out.writeEscaped(closeApproachDate);
+        out.write(CARD_SIZE);
+        writeDiameter(out, estimatedDiameter);
+        out.write(CARD_DISTANCE);
+        writeDistance(out, missDistance);
+        out.write(CARD_ASSESSMENT);
+        out.writeRaw(riskLevel);
+        out.write(CARD_END);
+    }
+
+    public static String createApodSectionHtml(String title, String imageUrl, String explanation,
                                               String date, String copyright) {
-        StringBuilder apod = new StringBuilder();
-        apod.append("<div class=\"space-photo\">");
-        apod.append("<div class=\"photo-title\">Featured Space Image</div>");
-        apod.append("<img src=\"").append(escapeHtml(imageUrl)).append("\" alt=\"").append(escapeHtml(title)).append("\" class=\"photo-img\">");
-        apod.append("<div class=\"photo-desc\">");
-        apod.append("<strong>").append(escapeHtml(title)).append("</strong><br><br>");
-        apod.append(escapeHtml(explanation));
-        apod.append("</div>");
-        apod.append("<div class=\"photo-meta\">");
-        apod.append("Image Date: ").append(escapeHtml(date));
+        HtmlBuffer out = BUFFER.get().reset();
+        writeApodSection(out, title, imageUrl, explanation, date, copyright);
+        return out.toString();
+    }
+
+    public static void writeApodSection(HtmlBuffer out, String title, String imageUrl, String explanation,
+                                        String date, String copyright) {
+        out.write(APOD_START);
+        out.writeEscaped(imageUrl);
+        out.write(APOD_ALT);
+        out.writeEscaped(title);
+        out.write(APOD_TITLE);
+        out.writeEscaped(title);
+        out.write(APOD_EXPLANATION);
+        out.writeEscaped(explanation);
+        out.write(APOD_DATE);
+        out.writeEscaped(date);
         if (copyright != null && !copyright.isEmpty()) {
-            apod.append(" • Credit: ").append(escapeHtml(copyright));
+            out.write(APOD_CREDIT);
+            out.writeEscaped(copyright);
         }
-        apod.append("</div>");
-        apod.append("</div>");
-        return apod.toString();
+        out.write(APOD_END);
     }
-    
+
     public static String getRiskLevelHtml(double missDistance) {
         if (missDistance < 1000000) {
             return "<span class=\"risk-high\">High Interest</span>";
@@ -147,51 +200,102 @@ public class EmailTemplate {
             return "<span class=\"risk-low\">Routine Observation</span>";
         }
     }
-    
-    private static String cleanAsteroidName(String name) {
-        if (name == null) return "Unknown Object";
-        
-        // Remove common prefixes and make more readable
-        String cleaned = name.replaceAll("^\\([0-9]+\\)\\s*", "")
-                            .replaceAll("^[0-9]+\\s+", "")
-                            .trim();
-        
-        if (cleaned.isEmpty()) {
-            return name; // fallback to original
+
+    // Drops a leading "(12345)" and/or a leading number followed by whitespace, then trims
+    private static void writeCleanAsteroidName(HtmlBuffer out, String name) {
+        if (name == null) {
+            out.write(UNKNOWN_OBJECT);
+            return;
         }
-        
-        return escapeHtml(cleaned);
-    }
-    
-    private static String formatDiameter(double diameter) {
-        if (diameter > 1000) {
-            return String.format("%.1f km", diameter / 1000);
+
+        int start = 0;
+        int end = name.length();
+        if (start < end && name.charAt(start) == '(') {
+            int i = skipDigits(name, start + 1, end);
+            if (i > start + 1 && i < end && name.charAt(i) == ')') {
+                start = skipWhitespace(name, i + 1, end);
+            }
+        }
+        int digitsEnd = skipDigits(name, start, end);
+        if (digitsEnd > start && digitsEnd < end && isWhitespace(name.charAt(digitsEnd))) {
+            start = skipWhitespace(name, digitsEnd, end);
+        }
+        while (start < end && name.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (start == end) {
+            out.writeEscaped(name); // fallback to original
         } else {
-            return String.format("%.0f meters", diameter);
+            out.writeEscaped(name, start, end);
         }
     }
-    
-    private static String formatDistance(double distance) {
-        double lunarDistances = distance / 384400; // km to lunar distances
-        if (lunarDistances < 1) {
-            return String.format("%.0f km (%.2f lunar distances)", distance, lunarDistances);
+
+    private static int skipDigits(String text, int from, int end) {
+        while (from < end && text.charAt(from) >= '0' && text.charAt(from) <= '9') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipWhitespace(String text, int from, int end) {
+        while (from < end && isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    // Same set as the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void writeDiameter(HtmlBuffer out, double diameter) {
+        if (diameter > 1000) {
+            out.writeFixed(diameter / 1000, 1).write(KM);
         } else {
-            return String.format("%.0f km (%.1f lunar distances)", distance, lunarDistances);
+            out.writeFixed(diameter, 0).write(METERS);
         }
     }
-    
-    private static String formatDateTime(LocalDateTime dateTime) {
-        return dateTime.format(DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' h:mm a"));
+
+    private static void writeDistance(HtmlBuffer out, double distance) {
+        double lunarDistances = distance / 384400; // km to lunar distances
+        out.writeFixed(distance, 0).write(KM_OPEN);
+        out.writeFixed(lunarDistances, lunarDistances < 1 ? 2 : 1).write(LUNAR_DISTANCES_CLOSE);
     }
-    
-    private static String escapeHtml(String input) {
+
+    static String escapeHtml(String input) {
         if (input == null) {
             return "";
         }
-        return input.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
+        StringBuilder escaped = null;
+        int copiedUpTo = 0;
+        for (int i = 0; i < input.length(); i++) {
+            String entity;
+            switch (input.charAt(i)) {
+                case '&': entity = "&amp;"; break;
+                case '<': entity = "&lt;"; break;
+                case '>': entity = "&gt;"; break;
+                case '"': entity = "&quot;"; break;
+                case '\'': entity = "&#39;"; break;
+                default: continue;
+            }
+            if (escaped == null) {
+                escaped = new StringBuilder(input.length() + 16);
+            }
+            escaped.append(input, copiedUpTo, i).append(entity);
+            copiedUpTo = i + 1;
+        }
+        if (escaped == null) {
+            return input;
+        }
+        return escaped.append(input, copiedUpTo, input.length()).toString();
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
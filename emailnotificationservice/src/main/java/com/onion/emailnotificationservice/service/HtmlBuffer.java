@@ -0,0 +1,242 @@
+package com.onion.emailnotificationservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte buffer that email HTML is rendered into. Meant to be reset and reused,
+ * so steady-state rendering does not allocate: constant markup is copied from pre-encoded
+ * byte blocks, text is HTML-escaped and UTF-8 encoded in a single pass, and numbers are
+ * written digit by digit instead of through String.format.
+ *
+ * Not thread-safe.
+ */
+public final class HtmlBuffer {
+
+    private static final byte[] AMP = ascii("&amp;");
+    private static final byte[] LT = ascii("&lt;");
+    private static final byte[] GT = ascii("&gt;");
+    private static final byte[] QUOT = ascii("&quot;");
+    private static final byte[] APOS = ascii("&#39;");
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    // Above this, scaled values no longer have sub-unit precision and are formatted exactly instead
+    private static final double MAX_FAST_SCALED = 1e15;
+
+    private byte[] bytes;
+    private int size;
+
+    public HtmlBuffer() {
+        this(8192);
+    }
+
+    public HtmlBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public HtmlBuffer reset() {
+        size = 0;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards everything written after the given size.
+     */
+    public HtmlBuffer truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("newSize " + newSize + " outside 0.." + size);
+        }
+        size = newSize;
+        return this;
+    }
+
+    public HtmlBuffer write(byte[] block) {
+        ensureCapacity(block.length);
+        System.arraycopy(block, 0, bytes, size, block.length);
+        size += block.length;
+        return this;
+    }
+
+    public HtmlBuffer write(HtmlBuffer other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.bytes, 0, bytes, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    /**
+     * Appends trusted markup as-is, UTF-8 encoded.
+     */
+    public HtmlBuffer writeRaw(String text) {
+        if (text != null) {
+            encode(text, 0, text.length(), false);
+        }
+        return this;
+    }
+
+    /**
+     * Appends text with &amp;, &lt;, &gt;, " and ' escaped. Null is written as nothing.
+     */
+    public HtmlBuffer writeEscaped(String text) {
+        if (text != null) {
+            encode(text, 0, text.length(), true);
+        }
+        return this;
+    }
+
+    /**
+     * Appends text.substring(from, to) escaped, without creating the substring.
+     */
+    public HtmlBuffer writeEscaped(String text, int from, int to) {
+        encode(text, from, to, true);
+        return this;
+    }
+
+    public HtmlBuffer writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return writeRaw(Long.toString(value));
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            bytes[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        reverse(start, size - 1);
+        return this;
+    }
+
+    /**
+     * Appends a decimal with a fixed number of fraction digits, giving the same text as
+     * String.format("%.Nf", value): half-up rounding of the shortest decimal representation.
+     * Values too close to a rounding tie to decide in binary take an exact, allocating path.
+     */
+    public HtmlBuffer writeFixed(double value, int fractionDigits) {
+        if (fractionDigits < 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("fractionDigits out of range: " + fractionDigits);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return writeRaw(String.format("%." + fractionDigits + "f", value));
+        }
+
+        long scale = POWERS_OF_TEN[fractionDigits];
+        double scaled = Math.abs(value) * scale;
+        double fraction = scaled - Math.floor(scaled);
+        if (scaled >= MAX_FAST_SCALED || Math.abs(fraction - 0.5) < 1e-6) {
+            return writeRaw(BigDecimal.valueOf(value).setScale(fractionDigits, RoundingMode.HALF_UP).toPlainString());
+        }
+
+        long rounded = Math.round(scaled);
+        if (Math.copySign(1.0, value) < 0) { // String.format keeps the sign of values that round to zero
+            ensureCapacity(1);
+            bytes[size++] = '-';
+        }
+        writeLong(rounded / scale);
+        if (fractionDigits > 0) {
+            ensureCapacity(fractionDigits + 1);
+            bytes[size++] = '.';
+            long fractionValue = rounded % scale;
+            for (int i = fractionDigits - 1; i >= 0; i--) {
+                bytes[size + i] = (byte) ('0' + fractionValue % 10);
+                fractionValue /= 10;
+            }
+            size += fractionDigits;
+        }
+        return this;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    public void copyTo(byte[] target, int offset) {
+        System.arraycopy(bytes, 0, target, offset, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void encode(String text, int from, int to, boolean escape) {
+        // Worst case per char: 6 bytes for an escape, 3 for a BMP char, 4 per surrogate pair
+        ensureCapacity((to - from) * (escape ? 6 : 3));
+        byte[] buf = bytes;
+        int pos = size;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                byte[] entity = escape ? entityFor(c) : null;
+                if (entity == null) {
+                    buf[pos++] = (byte) c;
+                } else {
+                    System.arraycopy(entity, 0, buf, pos, entity.length);
+                    pos += entity.length;
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?'; // unpaired surrogate, same replacement String.getBytes uses
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = pos;
+    }
+
+    private static byte[] entityFor(char c) {
+        switch (c) {
+            case '&': return AMP;
+            case '<': return LT;
+            case '>': return GT;
+            case '"': return QUOT;
+            case '\'': return APOS;
+            default: return null;
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = size + additional;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            byte tmp = bytes[from];
+            bytes[from++] = bytes[to];
+            bytes[to--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The deliveries of one alert run that have been handed to their channels. Outcomes are queued as the
+ * sends return and taken by the run, which records them in bulk between claims.
+ *
+ * A send that has not returned within its channel's timeout is not waited for any more, but it is not
+ * a failure either: it may still go through. Its delivery stays claimed, and whatever the send returns
+ * is recorded when it returns, also after the run is over. Should it never return, the lease expires
+ * and the delivery is claimed again.
+ */
+@Slf4j
+class InFlightDeliveries {
+
+    record Completed(Delivery delivery, AlertDispatcher.Outcome outcome) {
+    }
+
+    private final BlockingQueue<Completed> completed = new LinkedBlockingQueue<>();
+    private final Consumer<List<Completed>> lateOutcomes;
+    // Run thread only: every delivery whose send has not been taken yet, by id, with the time the run stops
+    // waiting for it; null once that has passed
+    private final Map<Long, Instant> deadlines = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * @param lateOutcomes Records outcomes that arrive after {@link #close()}; called on the thread that
+     *                     completed the send.
+     */
+    InFlightDeliveries(Consumer<List<Completed>> lateOutcomes) {
+        this.lateOutcomes = lateOutcomes;
+    }
+
+    void add(Delivery delivery, CompletableFuture<AlertDispatcher.Outcome> outcome, Duration timeout) {
+        deadlines.put(delivery.getId(), Instant.now().plus(timeout));
+        outcome.whenComplete((result, e) ->
+                complete(new Completed(delivery, e == null ? result : AlertDispatcher.Outcome.FAILED)));
+    }
+
+    /**
+     * Takes the outcomes that have arrived so far. With wait set and nothing arrived yet, first waits for
+     * the next one while any send is still within its timeout.
+     *
+     * @return The outcomes; empty if none arrived and, when waiting, no send is being waited for any more.
+     */
+    List<Completed> take(boolean wait) throws InterruptedException {
+        List<Completed> taken = new ArrayList<>();
+        completed.drainTo(taken);
+        while (wait && taken.isEmpty()) {
+            Instant now = Instant.now();
+            Instant next = stopWaitingUntil(now);
+            if (next == null) {
+                break;
+            }
+            Completed first = completed.poll(Duration.between(now, next).toMillis() + 1, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                taken.add(first);
+                completed.drainTo(taken);
+            }
+        }
+        taken.forEach(done -> deadlines.remove(done.delivery().getId()));
+        return taken;
+    }
+
+    /**
+     * Stops waiting for all sends; outcomes that arrive from now on go to the late outcome consumer.
+     *
+     * @return The outcomes that arrived but were not taken yet.
+     */
+    List<Completed> close() {
+        synchronized (this) {
+            closed = true;
+        }
+        List<Completed> remaining = new ArrayList<>();
+        completed.drainTo(remaining);
+        remaining.forEach(done -> deadlines.remove(done.delivery().getId()));
+        if (!deadlines.isEmpty()) {
+            log.warn("Alert run finished with {} sends still running; their deliveries stay claimed until they return",
+                    deadlines.size());
+        }
+        deadlines.clear();
+        return remaining;
+    }
+
+    // Stops waiting for the sends whose timeout has passed and returns the earliest deadline left, if any
+    private Instant stopWaitingUntil(Instant now) {
+        int timedOut = 0;
+        Instant next = null;
+        for (Map.Entry<Long, Instant> entry : deadlines.entrySet()) {
+            Instant deadline = entry.getValue();
+            if (deadline == null) {
+                continue;
+            }
+            if (!deadline.isAfter(now)) {
+                entry.setValue(null);
+                timedOut++;
+            } else if (next == null || deadline.isBefore(next)) {
+                next = deadline;
+            }
+        }
+        if (timedOut > 0) {
+            log.warn("{} sends did not return within their channel's timeout; their deliveries stay claimed until "
+                    + "the send returns or the lease expires", timedOut);
+        }
+        return next;
+    }
+
+    private void complete(Completed done) {
+        synchronized (this) {
+            if (!closed) {
+                completed.add(done);
+                return;
+            }
+        }
+        try {
+            lateOutcomes.accept(List.of(done));
+        } catch (RuntimeException e) {
+            log.error("Failed to record the outcome of delivery {}: {}", done.delivery().getId(), e.getMessage(), e);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.onion.emailnotificationservice.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.ResourceAccessException;
@@ -11,10 +16,19 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.onion.emailnotificationservice.entity.ApodEntry;
+import com.onion.emailnotificationservice.repository.ApodEntryRepository;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Serves NASA's Astronomy Picture of the Day from a per-date cache.
+ *
+ * Lookups go memory -> apod_cache table -> NASA. Concurrent lookups for the same date share a
+ * single in-flight load, and today's picture is prefetched shortly after midnight, so the NASA
+ * call stays out of the email send path. Failed loads are not cached and are retried on the next call.
+ */
 @Service
 @Slf4j
 public class NasaApodService {
@@ -22,17 +36,92 @@ public class NasaApodService {
     @Value("${nasa.api.key}")
     private String apiKey;
 
+    @Value("${nasa.apod.api.url:https://api.nasa.gov/planetary/apod}")
+    private String apodApiUrl;
+
+    @Value("${nasa.apod.retention-days:30}")
+    private int retentionDays;
+
     private final RestTemplate restTemplate;
-    private static final String APOD_API_URL = "https://api.nasa.gov/planetary/apod";
+    private final ApodEntryRepository apodEntryRepository;
+    private final Map<LocalDate, CompletableFuture<ApodResponse>> cache = new ConcurrentHashMap<>();
 
-    public NasaApodService() {
-        this.restTemplate = new RestTemplate();
+    public NasaApodService(RestTemplate restTemplate, ApodEntryRepository apodEntryRepository) {
+        this.restTemplate = restTemplate;
+        this.apodEntryRepository = apodEntryRepository;
     }
 
     public ApodResponse getApodForDate(LocalDate date) {
+        CompletableFuture<ApodResponse> load = new CompletableFuture<>();
+        CompletableFuture<ApodResponse> inFlight = cache.putIfAbsent(date, load);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+
+        // This caller owns the load; everyone else asking for the same date waits on the future
+        ApodResponse apod = null;
+        try {
+            apod = loadApod(date);
+        } finally {
+            if (apod == null) {
+                cache.remove(date, load);
+            }
+            load.complete(apod);
+        }
+        return apod;
+    }
+
+    public ApodResponse getApodForToday() {
+        return getApodForDate(LocalDate.now());
+    }
+
+    /**
+     * Loads today's picture right after midnight so the first send run of the day finds it cached,
+     * and drops entries that are no longer needed.
+     */
+    @Scheduled(cron = "${nasa.apod.prefetch-cron:0 5 0 * * *}")
+    public void prefetchToday() {
+        LocalDate today = LocalDate.now();
+        cache.keySet().removeIf(date -> date.isBefore(today.minusDays(1)));
+        try {
+            long removed = apodEntryRepository.deleteByApodDateBefore(today.minusDays(retentionDays));
+            if (removed > 0) {
+                log.info("Removed {} expired APOD cache entries", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to clean up APOD cache: {}", e.getMessage());
+        }
+
+        ApodResponse apod = getApodForDate(today);
+        log.info("APOD prefetch for {} {}", today, apod != null ? "succeeded" : "failed, will retry on demand");
+    }
+
+    private ApodResponse loadApod(LocalDate date) {
+        try {
+            ApodEntry persisted = apodEntryRepository.findById(date).orElse(null);
+            if (persisted != null) {
+                log.debug("Loaded APOD for {} from persisted cache", date);
+                return toResponse(persisted);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read persisted APOD for {}: {}", date, e.getMessage());
+        }
+
+        ApodResponse apod = fetchFromNasa(date);
+        if (apod != null) {
+            try {
+                apodEntryRepository.save(toEntry(date, apod));
+            } catch (Exception e) {
+                log.warn("Failed to persist APOD for {}: {}", date, e.getMessage());
+            }
+        }
+        return apod;
+    }
+
+    private ApodResponse fetchFromNasa(LocalDate date) {
         try {
             String dateStr = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            String url = String.format("%s?date=%s&api_key=%s", APOD_API_URL, dateStr, apiKey);
+            String url = String.format("%s?date=%s&api_key=%s", apodApiUrl, dateStr, apiKey);
             
             log.info("Fetching APOD for date: {}", dateStr);
             
@@ -64,8 +153,31 @@ public class NasaApodService {
         }
     }
 
-    public ApodResponse getApodForToday() {
-        return getApodForDate(LocalDate.now());
+    private static ApodEntry toEntry(LocalDate date, ApodResponse apod) {
+        return ApodEntry.builder()
+                .apodDate(date)
+                .title(apod.getTitle())
+                .url(apod.getUrl())
+                .hdurl(apod.getHdurl())
+                .mediaType(apod.getMediaType())
+                .copyright(apod.getCopyright())
+                .serviceVersion(apod.getServiceVersion())
+                .explanation(apod.getExplanation())
+                .fetchedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static ApodResponse toResponse(ApodEntry entry) {
+        ApodResponse apod = new ApodResponse();
+        apod.setDate(entry.getApodDate().toString());
+        apod.setTitle(entry.getTitle());
+        apod.setUrl(entry.getUrl());
+        apod.setHdurl(entry.getHdurl());
+        apod.setMediaType(entry.getMediaType());
+        apod.setCopyright(entry.getCopyright());
+        apod.setServiceVersion(entry.getServiceVersion());
+        apod.setExplanation(entry.getExplanation());
+        return apod;
     }
 
     @Data
@@ -100,4 +212,4 @@ public class NasaApodService {
         @JsonProperty("code")
         private Integer code;
     }
-} 
\ No newline at end of file
+}
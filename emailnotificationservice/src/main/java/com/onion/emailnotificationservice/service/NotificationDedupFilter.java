@@ -0,0 +1,52 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.onion.emailnotificationservice.entity.Notification;
+
+/**
+ * Bounded, in-memory record of recently stored notifications, keyed by their natural key
+ * (asteroid name + close approach date). Lets the consumer drop Kafka redeliveries and the
+ * asteroids NeoWs republishes on every run without a database round trip.
+ *
+ * Only exact repeats are rejected: a known key with a changed miss distance or diameter still
+ * reaches the database so the stored row is updated. Entries are evicted least-recently-used,
+ * so the database unique key remains the source of truth.
+ */
+@Component
+public class NotificationDedupFilter {
+
+    private final Map<String, String> recentlyStored;
+
+    public NotificationDedupFilter(@Value("${notification.dedup.cache-size:10000}") int cacheSize) {
+        final int maxEntries = Math.max(1, cacheSize);
+        this.recentlyStored = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized boolean isDuplicate(Notification notification) {
+        return Objects.equals(recentlyStored.get(naturalKey(notification)), fingerprint(notification));
+    }
+
+    public synchronized void recordStored(Notification notification) {
+        recentlyStored.put(naturalKey(notification), fingerprint(notification));
+    }
+
+    public static String naturalKey(Notification notification) {
+        return notification.getAsteroidName() + "|" + notification.getCloseApproachDate();
+    }
+
+    private static String fingerprint(Notification notification) {
+        return notification.getMissDistanceKilometers().stripTrailingZeros().toPlainString()
+                + "|" + notification.getEstimatedDiameterAvgMeters();
+    }
+}
@@ -0,0 +1,155 @@
+package com.onion.emailnotificationservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import com.onion.emailnotificationservice.dto.NotificationDto;
+import com.onion.emailnotificationservice.dto.NotificationFilter;
+import com.onion.emailnotificationservice.dto.NotificationMapper;
+import com.onion.emailnotificationservice.dto.NotificationPage;
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+
+import jakarta.persistence.criteria.Predicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read access to stored notifications, newest close approach first, in keyset-paginated pages.
+ *
+ * The cursor is the (closeApproachDate, id) of the last row of the previous page, so every page
+ * is a range scan on idx_notification_approach, or idx_notification_sent_approach when filtering
+ * by sent state, that stops after limit + 1 rows; no OFFSET and no count query.
+ */
+@Service
+@Slf4j
+public class NotificationHistoryService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("closeApproachDate"), Sort.Order.desc("id"));
+
+    private final NotificationRepository notificationRepository;
+    private final int maxPageSize;
+
+    public NotificationHistoryService(NotificationRepository notificationRepository,
+                                      @Value("${notification.history.max-page-size:500}") int maxPageSize) {
+        this.notificationRepository = notificationRepository;
+        this.maxPageSize = Math.max(1, maxPageSize);
+    }
+
+    /**
+     * Returns the page of notifications matching the filter that follows the cursor.
+     *
+     * @param filter Filters to apply; null fields are ignored.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit Maximum number of notifications, capped at notification.history.max-page-size.
+     * @throws IllegalArgumentException If the limit, the cursor or the date range is invalid.
+     */
+    @Transactional(readOnly = true)
+    public NotificationPage findNotifications(NotificationFilter filter, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            throw new IllegalArgumentException("From date cannot be after to date");
+        }
+        final int pageSize = Math.min(limit, maxPageSize);
+
+        // One row past the page tells whether another page exists
+        List<Notification> rows = notificationRepository.findBy(matching(filter, decodeCursor(cursor)),
+                query -> query.sortBy(NEWEST_FIRST).limit(pageSize + 1).all());
+
+        final boolean hasMore = rows.size() > pageSize;
+        final List<NotificationDto> items = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (Notification notification : hasMore ? rows.subList(0, pageSize) : rows) {
+            items.add(NotificationMapper.toDto(notification));
+        }
+        final String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1)) : null;
+        log.debug("Returning {} notifications, more: {}", items.size(), hasMore);
+        return NotificationPage.builder().items(items).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * Strong entity tag of a page: a digest of every field it returns, so it changes whenever a row
+     * on the page is updated (e.g. marked as sent) or the page boundaries move.
+     */
+    public String etagOf(NotificationPage page) {
+        StringBuilder content = new StringBuilder(page.getItems().size() * 96);
+        for (NotificationDto item : page.getItems()) {
+            content.append(item.getId()).append('|')
+                    .append(item.getAsteroidName()).append('|')
+                    .append(item.getCloseApproachDate()).append('|')
+                    .append(item.getMissDistanceKilometers()).append('|')
+                    .append(item.getEstimatedDiameterAvgMeters()).append('|')
+                    .append(item.isEmailSent()).append('|')
+                    .append(item.getPersistedAt()).append('\n');
+        }
+        content.append(page.getNextCursor());
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private static Specification<Notification> matching(NotificationFilter filter, Cursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("closeApproachDate"), filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("closeApproachDate"), filter.getTo()));
+            }
+            if (filter.getEmailSent() != null) {
+                predicates.add(cb.equal(root.get("emailSent"), filter.getEmailSent()));
+            }
+            if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+                // Prefix match, served by the (asteroid_name, close_approach_date) unique index
+                predicates.add(cb.like(root.get("asteroidName"), escapeLike(filter.getNamePrefix()) + "%", '\\'));
+            }
+            if (filter.getMinMissDistanceKilometers() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("missDistanceKilometers"),
+                        filter.getMinMissDistanceKilometers()));
+            }
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("closeApproachDate"), after.closeApproachDate()),
+                        cb.and(cb.equal(root.get("closeApproachDate"), after.closeApproachDate()),
+                                cb.lessThan(root.get("id"), after.id()))));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Cursors are opaque to clients: base64url of "<closeApproachDate>:<id>"
+    private static String encodeCursor(NotificationDto last) {
+        String key = last.getCloseApproachDate() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = key.lastIndexOf(':');
+            return new Cursor(LocalDate.parse(key.substring(0, separator)), Long.parseLong(key.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private record Cursor(LocalDate closeApproachDate, long id) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores incoming notifications idempotently, using asteroid name + close approach date as the
+ * natural key. New keys are inserted, known keys have their measurements updated in place and
+ * keep their emailSent state, so a redelivered or republished asteroid is never mailed twice.
+ * They also keep the pipeline timestamps of the event that first stored them, while every stored
+ * event is counted in the publish_to_consume and consume_to_persist latency stages.
+ * Committing unsent notifications signals {@link AlertSendTrigger}, which starts the email run.
+ *
+ * The lookup and the insert are not atomic: the retry-topic listener runs on other consumers than
+ * the partition owner, so the same asteroid can be inserted concurrently. The loser of that race
+ * hits uk_notification_asteroid_approach and runs the batch once more, finding the winner's row
+ * and updating it like any other known key.
+ */
+@Service
+@Slf4j
+public class NotificationIngestionService {
+
+    private static final String NATURAL_KEY_CONSTRAINT = "uk_notification_asteroid_approach";
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationDedupFilter dedupFilter;
+    private final AlertLatencyMetrics latencyMetrics;
+    private final AlertSendTrigger alertSendTrigger;
+    private final TransactionTemplate transactionTemplate;
+
+    public NotificationIngestionService(NotificationRepository notificationRepository,
+                                        NotificationDedupFilter dedupFilter,
+                                        AlertLatencyMetrics latencyMetrics,
+                                        AlertSendTrigger alertSendTrigger,
+                                        PlatformTransactionManager transactionManager) {
+        this.notificationRepository = notificationRepository;
+        this.dedupFilter = dedupFilter;
+        this.latencyMetrics = latencyMetrics;
+        this.alertSendTrigger = alertSendTrigger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Upserts a batch of notifications in one transaction. If another consumer inserts one of the
+     * keys between the lookup and the insert, the batch is rolled back and upserted once more.
+     *
+     * @param notifications Validated, unsaved notifications.
+     * @return The number of rows inserted or updated.
+     */
+    public int upsert(List<Notification> notifications) {
+        try {
+            return transactionTemplate.execute(status -> upsertInTransaction(notifications));
+        } catch (DataIntegrityViolationException e) {
+            if (!violatesNaturalKey(e)) {
+                throw e;
+            }
+            log.info("Notification inserted concurrently by another consumer, upserting batch of {} again: {}",
+                    notifications.size(), e.getMostSpecificCause().getMessage());
+            // The rolled-back inserts already carry generated ids; without them they are new rows again
+            notifications.forEach(notification -> notification.setId(null));
+            return transactionTemplate.execute(status -> upsertInTransaction(notifications));
+        }
+    }
+
+    private int upsertInTransaction(List<Notification> notifications) {
+        // Drop repeats inside the batch (last one wins) and those the filter has already seen
+        Map<String, Notification> candidates = new LinkedHashMap<>();
+        notifications.forEach(notification -> candidates.put(NotificationDedupFilter.naturalKey(notification), notification));
+        candidates.values().removeIf(dedupFilter::isDuplicate);
+
+        if (candidates.isEmpty()) {
+            log.info("All {} notifications were duplicates, nothing to store", notifications.size());
+            return 0;
+        }
+
+        Set<String> names = candidates.values().stream().map(Notification::getAsteroidName).collect(Collectors.toSet());
+        Set<LocalDate> dates = candidates.values().stream().map(Notification::getCloseApproachDate).collect(Collectors.toSet());
+        Map<String, Notification> existing = notificationRepository
+                .findByAsteroidNameInAndCloseApproachDateIn(names, dates).stream()
+                .collect(Collectors.toMap(NotificationDedupFilter::naturalKey, Function.identity(), (first, second) -> first));
+
+        List<Notification> toSave = new ArrayList<>(candidates.size());
+        Instant persistedAt = Instant.now();
+        int inserted = 0;
+        for (Map.Entry<String, Notification> entry : candidates.entrySet()) {
+            Notification incoming = entry.getValue();
+            Notification stored = existing.get(entry.getKey());
+            if (stored == null) {
+                incoming.setPersistedAt(persistedAt);
+                toSave.add(incoming);
+                inserted++;
+            } else {
+                stored.setMissDistanceKilometers(incoming.getMissDistanceKilometers());
+                stored.setEstimatedDiameterAvgMeters(incoming.getEstimatedDiameterAvgMeters());
+                toSave.add(stored);
+            }
+        }
+
+        // Flush here so a unique key violation surfaces as a DataIntegrityViolationException before commit
+        notificationRepository.saveAllAndFlush(toSave);
+        recordAfterCommit(toSave, List.copyOf(candidates.values()));
+
+        log.info("Upserted {} notifications: {} inserted, {} updated, {} duplicates skipped",
+                toSave.size(), inserted, toSave.size() - inserted, notifications.size() - toSave.size());
+        return toSave.size();
+    }
+
+    private static boolean violatesNaturalKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase().contains(NATURAL_KEY_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    // Only remember keys once they are durable, otherwise a rolled-back batch would be filtered on redelivery
+    private void recordAfterCommit(List<Notification> saved, List<Notification> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordStored(saved, events);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordStored(saved, events);
+            }
+        });
+    }
+
+    private void recordStored(List<Notification> saved, List<Notification> events) {
+        saved.forEach(dedupFilter::recordStored);
+        Instant committedAt = Instant.now();
+        for (Notification event : events) {
+            latencyMetrics.record(AlertLatencyMetrics.Stage.PUBLISH_TO_CONSUME, event.getPublishedAt(), event.getConsumedAt());
+            latencyMetrics.record(AlertLatencyMetrics.Stage.CONSUME_TO_PERSIST, event.getConsumedAt(), committedAt);
+        }
+        // Updates of already mailed asteroids give the run nothing to do
+        if (saved.stream().anyMatch(notification -> !notification.isEmailSent())) {
+            alertSendTrigger.notificationsStored();
+        }
+    }
+}
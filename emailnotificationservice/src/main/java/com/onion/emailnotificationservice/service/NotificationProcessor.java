@@ -1,9 +1,12 @@
 package com.onion.emailnotificationservice.service;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Objects;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.onion.emailnotificationservice.entity.Notification;
 import com.onion.emailnotificationservice.repository.NotificationRepository;
@@ -15,42 +18,72 @@ import lombok.extern.slf4j.Slf4j;
 public class NotificationProcessor {
 
     private final NotificationRepository notificationRepository;
+    private final int markSentChunkSize;
 
-    public NotificationProcessor(NotificationRepository notificationRepository) {
+    public NotificationProcessor(NotificationRepository notificationRepository,
+                                 @Value("${notification.mark-sent.chunk-size:1000}") int markSentChunkSize) {
         this.notificationRepository = notificationRepository;
+        this.markSentChunkSize = Math.max(1, markSentChunkSize);
     }
 
+    /**
+     * Unsent notifications that have not been queued for delivery yet. The rows are locked until the
+     * surrounding transaction ends, so call this from within one.
+     */
     public List<Notification> getUnsentNotifications() {
-        return notificationRepository.findByEmailSent(false);
+        return notificationRepository.findByEmailSentFalseAndDeliveryBatchIdIsNull();
     }
 
+    /**
+     * The notifications of a batch, most urgent first: earliest close approach, then smallest miss distance.
+     */
+    public List<Notification> getNotificationsForBatch(Long deliveryBatchId) {
+        return notificationRepository.findByDeliveryBatchIdOrderByCloseApproachDateAscMissDistanceKilometersAsc(deliveryBatchId);
+    }
+
+    public List<Long> getNotificationIdsForBatch(Long deliveryBatchId) {
+        return notificationRepository.findIdsByDeliveryBatchId(deliveryBatchId);
+    }
+
+    @Transactional
     public void markNotificationsAsSent(List<Notification> notifications) {
-        try {
-            AtomicInteger successCount = new AtomicInteger(0);
-            AtomicInteger failureCount = new AtomicInteger(0);
-            
-            notifications.forEach(notification -> {
-                try {
-                    notification.setEmailSent(true);
-                    notificationRepository.save(notification);
-                    successCount.incrementAndGet();
-                } catch (Exception e) {
-                    failureCount.incrementAndGet();
-                    log.error("Failed to mark notification {} as sent: {}", 
-                            notification.getId(), e.getMessage(), e);
-                }
-            });
-            
-            log.info("Notification marking completed: {} successful, {} failed", 
-                    successCount.get(), failureCount.get());
-                    
-        } catch (Exception e) {
-            log.error("Critical error marking notifications as sent: {}", e.getMessage(), e);
+        markNotificationIdsAsSent(notifications.stream()
+                .map(Notification::getId)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    /**
+     * Marks the notifications as sent with one UPDATE per chunk of ids, all in a single transaction.
+     * Either every chunk is applied or, if one fails, none is. Entities already loaded by the caller
+     * are not modified, so they do not turn into row-by-row updates on flush.
+     */
+    @Transactional
+    public void markNotificationIdsAsSent(List<Long> ids) {
+        int updatedCount = 0;
+        for (int from = 0; from < ids.size(); from += markSentChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + markSentChunkSize, ids.size()));
+            try {
+                updatedCount += notificationRepository.markEmailSent(chunk);
+            } catch (RuntimeException e) {
+                log.error("Failed to mark notifications as sent, rolling back {} notifications: {}",
+                        ids.size(), e.getMessage(), e);
+                throw e;
+            }
         }
+
+        log.info("Notification marking completed: {} successful, {} already sent or missing",
+                updatedCount, ids.size() - updatedCount);
     }
 
     public boolean hasUnsentNotifications() {
-        List<Notification> notifications = getUnsentNotifications();
-        return !notifications.isEmpty();
+        return notificationRepository.existsByEmailSentFalseAndDeliveryBatchIdIsNull();
+    }
+
+    /**
+     * Whether an unqueued notification approaches on or before the given date.
+     */
+    public boolean hasUnsentNotificationsApproachingBy(LocalDate closeApproachDate) {
+        return notificationRepository.existsByEmailSentFalseAndDeliveryBatchIdIsNullAndCloseApproachDateLessThanEqual(closeApproachDate);
     }
 }
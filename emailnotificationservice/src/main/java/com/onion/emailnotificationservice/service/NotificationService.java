@@ -1,16 +1,25 @@
 package com.onion.emailnotificationservice.service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import com.onion.NeoWs.event.AlertHeaders;
 import com.onion.NeoWs.event.AsteroidCollisionEvent;
 import com.onion.emailnotificationservice.entity.Notification;
-import com.onion.emailnotificationservice.repository.NotificationRepository;
+import com.onion.emailnotificationservice.exception.InvalidAlertEventException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,62 +27,174 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
-    private final EmailService emailService;
+    private final NotificationIngestionService notificationIngestionService;
+    private final AlertRetryTopics alertRetryTopics;
 
-    public NotificationService(NotificationRepository notificationRepository, EmailService emailService) {
-        this.notificationRepository = notificationRepository;
-        this.emailService = emailService;
+    public NotificationService(NotificationIngestionService notificationIngestionService,
+                               AlertRetryTopics alertRetryTopics) {
+        this.notificationIngestionService = notificationIngestionService;
+        this.alertRetryTopics = alertRetryTopics;
     }
     
-    @KafkaListener(topics = "asteroid-alert", groupId = "notification-service")
-    public void alertEvent(AsteroidCollisionEvent notificationEvent) {
-        log.info("Received asteroid collision alert: {}", notificationEvent);
+    /**
+     * Record-at-a-time listener, used when notification.kafka.batch-enabled=false.
+     *
+     * Both listeners run notification.kafka.concurrency consumers. Kafka gives each partition to
+     * exactly one of them and events are keyed by asteroid, so every asteroid's events are still
+     * handled in order by a single thread.
+     *
+     * Failures are not retried in place: the container's error handler forwards the record to the
+     * retry topics, or straight to the dead-letter topic if it can never be stored (see
+     * {@link AlertRetryTopics}), so one bad record does not hold up its partition.
+     */
+    @KafkaListener(id = "notification-single", topics = AlertRetryTopics.MAIN_TOPIC, groupId = "notification-service",
+            concurrency = "${notification.kafka.concurrency:6}",
+            autoStartup = "#{!${notification.kafka.batch-enabled:true}}")
+    public void alertEvent(ConsumerRecord<String, AsteroidCollisionEvent> record) {
+        log.info("Received asteroid collision alert: {}", record.value());
 
-        try {
-            // Validate the event data
-            if (notificationEvent == null) {
-                log.error("Received null asteroid collision event");
-                return;
-            }
+        // Save notification, or update the stored copy if this asteroid is already known
+        notificationIngestionService.upsert(List.of(toNotification(record, Instant.now())));
+    }
+
+    /**
+     * Batch listener: validates and maps a whole poll, then upserts it as one batched write
+     * in a single transaction.
+     *
+     * On the first record that cannot be stored, everything before it is stored and a
+     * BatchListenerFailedException tells the error handler which record to forward to the retry
+     * or dead-letter topic; the records after it are redelivered.
+     */
+    @KafkaListener(id = "notification-batch", topics = AlertRetryTopics.MAIN_TOPIC, groupId = "notification-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${notification.kafka.concurrency:6}",
+            autoStartup = "${notification.kafka.batch-enabled:true}")
+    public void alertEvents(List<ConsumerRecord<String, AsteroidCollisionEvent>> records) {
+        log.info("Received batch of {} asteroid collision alerts", records.size());
 
-            if (notificationEvent.getAsteroidName() == null || notificationEvent.getAsteroidName().trim().isEmpty()) {
-                log.error("Received asteroid event with null or empty asteroid name");
-                return;
+        final Instant consumedAt = Instant.now();
+        final List<Notification> notifications = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, AsteroidCollisionEvent> record : records) {
+            final Notification notification;
+            try {
+                notification = toNotification(record, consumedAt);
+            } catch (InvalidAlertEventException e) {
+                store(records, notifications, consumedAt);
+                throw new BatchListenerFailedException("Invalid asteroid collision event", e, notifications.size());
             }
+            notifications.add(notification);
+        }
+        store(records, notifications, consumedAt);
+    }
+
+    /**
+     * Listener for the retry topics, one consumer per topic. A record that is not due yet is
+     * nacked, which pauses that consumer until the topic's delay has passed since the record was
+     * forwarded. A record that fails again moves on to the next retry topic.
+     */
+    @KafkaListener(id = "notification-retry", topics = "#{@alertRetryTopics.retryTopics}",
+            groupId = "notification-service-retry", containerFactory = "retryKafkaListenerContainerFactory",
+            concurrency = "#{@alertRetryTopics.retryTopics.length}",
+            properties = "partition.assignment.strategy=org.apache.kafka.clients.consumer.RoundRobinAssignor")
+    public void retryAlertEvent(ConsumerRecord<String, AsteroidCollisionEvent> record, Acknowledgment acknowledgment) {
+        final long delayMs = alertRetryTopics.delayMs(record.topic());
+        final long waitMs = record.timestamp() + delayMs - System.currentTimeMillis();
+        if (waitMs > 0) {
+            acknowledgment.nack(Duration.ofMillis(Math.min(waitMs, delayMs)));
+            return;
+        }
 
-            if (notificationEvent.getCloseApproachDate() == null || notificationEvent.getCloseApproachDate().trim().isEmpty()) {
-                log.error("Received asteroid event with null or empty close approach date");
-                return;
+        log.info("Retrying asteroid collision alert from {}: {}", record.topic(), record.value());
+        notificationIngestionService.upsert(List.of(toNotification(record, Instant.now())));
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * Upserts the notifications mapped from the first records of a batch. If the batched write
+     * fails they are stored one at a time, so only the record that actually fails is forwarded.
+     */
+    private void store(List<ConsumerRecord<String, AsteroidCollisionEvent>> records, List<Notification> notifications,
+                       Instant consumedAt) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        try {
+            int stored = notificationIngestionService.upsert(notifications);
+            log.info("Stored {} notifications from batch of {} events", stored, records.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to store batch of {} notifications, storing them one by one: {}", notifications.size(), e.getMessage());
+            for (int i = 0; i < notifications.size(); i++) {
+                try {
+                    // Map again: entities from the rolled-back batch may already carry generated ids
+                    notificationIngestionService.upsert(List.of(toNotification(records.get(i), consumedAt)));
+                } catch (RuntimeException single) {
+                    throw new BatchListenerFailedException("Failed to store asteroid collision event", single, i);
+                }
             }
+        }
+    }
+
+    /**
+     * Validates an event and maps it to an unsent Notification, carrying over the ingest and
+     * publish times NeoWs put in the record headers.
+     *
+     * @throws InvalidAlertEventException If a required field is missing or malformed.
+     */
+    private Notification toNotification(ConsumerRecord<String, AsteroidCollisionEvent> record, Instant consumedAt) {
+        final AsteroidCollisionEvent notificationEvent = record.value();
 
-            // Create entity for notification
-            final Notification notification = Notification.builder()
+        // Validate the event data
+        if (notificationEvent == null) {
+            throw invalidEvent(record, "no readable payload");
+        }
+
+        if (notificationEvent.getAsteroidName() == null || notificationEvent.getAsteroidName().trim().isEmpty()) {
+            throw invalidEvent(record, "null or empty asteroid name");
+        }
+
+        if (notificationEvent.getCloseApproachDate() == null || notificationEvent.getCloseApproachDate().trim().isEmpty()) {
+            throw invalidEvent(record, "null or empty close approach date");
+        }
+
+        if (notificationEvent.getMissDistanceKilometers() == null) {
+            throw invalidEvent(record, "null miss distance");
+        }
+
+        try {
+            return Notification.builder()
                     .asteroidName(notificationEvent.getAsteroidName())
                     .closeApproachDate(LocalDate.parse(notificationEvent.getCloseApproachDate()))
                     .estimatedDiameterAvgMeters(notificationEvent.getEstimatedDiameterAverageMeters())
                     .missDistanceKilometers(new BigDecimal(notificationEvent.getMissDistanceKilometers()))
                     .emailSent(false)
+                    .ingestedAt(headerInstant(record, AlertHeaders.INGESTED_AT))
+                    .publishedAt(headerInstant(record, AlertHeaders.PUBLISHED_AT))
+                    .consumedAt(consumedAt)
                     .build();
-
-            // Save notification
-            final Notification savedNotification = notificationRepository.saveAndFlush(notification);
-            log.info("Notification saved successfully: {}", savedNotification);
-
         } catch (NumberFormatException e) {
-            log.error("Failed to parse numeric values from asteroid event: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("Failed to process asteroid collision event: {}", e.getMessage(), e);
+            throw invalidEvent(record, "malformed miss distance '" + notificationEvent.getMissDistanceKilometers() + "'");
+        } catch (DateTimeParseException e) {
+            throw invalidEvent(record, "malformed close approach date '" + notificationEvent.getCloseApproachDate() + "'");
         }
     }
 
-    @Scheduled(fixedRate = 10000)
-    public void sendAlertingEmail() {
+    private static InvalidAlertEventException invalidEvent(ConsumerRecord<?, ?> record, String reason) {
+        log.error("Invalid asteroid collision event at {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), reason);
+        return new InvalidAlertEventException("Invalid asteroid collision event at " + record.topic() + "-"
+                + record.partition() + "@" + record.offset() + ": " + reason);
+    }
+
+    private static Instant headerInstant(ConsumerRecord<?, ?> record, String name) {
+        final Header header = record.headers().lastHeader(name);
+        if (header == null || header.value() == null) {
+            return null;
+        }
         try {
-            log.info("Triggering scheduled job to send email alerts at {}", LocalDateTime.now());
-            emailService.sendAsteroidAlertEmail();
-        } catch (Exception e) {
-            log.error("Error in scheduled email job: {}", e.getMessage(), e);
+            return Instant.ofEpochMilli(Long.parseLong(new String(header.value(), StandardCharsets.US_ASCII)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed {} header on {}-{}@{}", name, record.topic(), record.partition(), record.offset());
+            return null;
         }
     }
 }
@@ -0,0 +1,57 @@
+package com.onion.emailnotificationservice.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.onion.emailnotificationservice.entity.User;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA listener on {@link User} that keeps the recipient index in step with creates, notification
+ * toggles and deletes, whichever code path makes them. Changes are applied once the transaction
+ * commits, so a rolled-back change never reaches the index.
+ *
+ * Created by Hibernate through Spring; the index is looked up lazily because entity listeners
+ * are instantiated while the EntityManagerFactory, which the index itself depends on, is built.
+ */
+public class RecipientIndexListener {
+
+    private final ObjectProvider<RecipientSource> recipientSource;
+
+    public RecipientIndexListener(ObjectProvider<RecipientSource> recipientSource) {
+        this.recipientSource = recipientSource;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void userSaved(User user) {
+        final long id = user.getId();
+        final String email = user.getEmail();
+        final String fullName = user.getFullName();
+        final boolean enabled = user.isNotificationEnabled();
+        afterCommit(() -> recipientSource.getObject().userSaved(id, email, fullName, enabled));
+    }
+
+    @PostRemove
+    public void userDeleted(User user) {
+        final long id = user.getId();
+        afterCommit(() -> recipientSource.getObject().userDeleted(id));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
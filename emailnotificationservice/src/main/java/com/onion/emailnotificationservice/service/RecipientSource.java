@@ -0,0 +1,280 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.onion.emailnotificationservice.dto.Recipient;
+import com.onion.emailnotificationservice.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves users with notifications enabled from an in-memory index, in id order and in pages of
+ * Recipient projections, so a send run does not scan the user table.
+ *
+ * The index is a sorted array of enabled user ids with the email and name of each id in parallel
+ * arrays, so it costs memory per enabled user only, however sparse the ids are. Membership is a
+ * binary search and a page is a copy of consecutive entries.
+ *
+ * User changes committed on this instance are applied right away by {@link RecipientIndexListener}.
+ * The index is loaded from the database at startup and, as a safety net for changes made by other
+ * instances or past the entity listener, every email.recipients.index.refresh-ms (hourly by default).
+ */
+@Service
+@Slf4j
+public class RecipientSource {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final int pageSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    // Guarded by lock
+    private Table table;
+    // Changes recorded while a rebuild reads the database, replayed onto the new table; guarded by lock
+    private List<Change> changesDuringRebuild;
+
+    public RecipientSource(UserRepository userRepository,
+                           @Value("${email.recipients.page-size:500}") int pageSize) {
+        this.userRepository = userRepository;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Hands every page of enabled recipients, in id order, to the consumer.
+     *
+     * @param pageConsumer Called once per non-empty page.
+     * @return The total number of recipients visited.
+     */
+    public long forEachPage(Consumer<List<Recipient>> pageConsumer) {
+        loadedTable();
+        long total = 0;
+        long afterId = 0;
+        List<Recipient> page;
+        do {
+            page = new ArrayList<>(pageSize);
+            lock.readLock().lock();
+            try {
+                afterId = table.copyPage(afterId, pageSize, page);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            pageConsumer.accept(page);
+            total += page.size();
+        } while (page.size() == pageSize);
+
+        log.debug("Visited {} notification-enabled recipients", total);
+        return total;
+    }
+
+    public long forEach(Consumer<Recipient> recipientConsumer) {
+        return forEachPage(page -> page.forEach(recipientConsumer));
+    }
+
+    /**
+     * Whether the user currently has notifications enabled.
+     */
+    public boolean isEnabled(long userId) {
+        loadedTable();
+        lock.readLock().lock();
+        try {
+            return table.contains(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a committed create or update of a user.
+     */
+    public void userSaved(long userId, String email, String fullName, boolean notificationEnabled) {
+        apply(new Change(userId, email, fullName, notificationEnabled));
+    }
+
+    /**
+     * Records a committed delete of a user.
+     */
+    public void userDeleted(long userId) {
+        apply(new Change(userId, null, null, false));
+    }
+
+    /**
+     * Reloads the index from the database, at startup and then as a rare safety net. Changes
+     * recorded while it loads are replayed on top, so none is lost to the swap. If loading fails the
+     * previous index stays in place.
+     */
+    @Scheduled(fixedDelayString = "${email.recipients.index.refresh-ms:3600000}")
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Table loaded = new Table();
+            boolean complete = false;
+            try {
+                forEachDatabasePage(LOAD_PAGE_SIZE, page -> page.forEach(recipient ->
+                        loaded.put(recipient.getId(), recipient.getEmail(), recipient.getFullName())));
+                complete = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (complete) {
+                        changesDuringRebuild.forEach(loaded::apply);
+                        table = loaded;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            log.debug("Recipient index loaded with {} notification-enabled users", loaded.count);
+        }
+    }
+
+    private Table loadedTable() {
+        lock.readLock().lock();
+        try {
+            if (table != null) {
+                return table;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (rebuildMonitor) {
+            if (table == null) {
+                rebuild();
+            }
+            return table;
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+            // Before the first load there is nothing to update; the load reads the change from the database
+            if (table != null) {
+                table.apply(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keyset pages over idx_user_notification_enabled
+    private long forEachDatabasePage(int size, Consumer<List<Recipient>> pageConsumer) {
+        long total = 0;
+        long afterId = 0;
+        List<Recipient> page;
+        do {
+            page = userRepository.findEnabledRecipientsAfter(afterId, Limit.of(size));
+            if (page.isEmpty()) {
+                break;
+            }
+            pageConsumer.accept(page);
+            total += page.size();
+            afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == size);
+        return total;
+    }
+
+    private record Change(long userId, String email, String fullName, boolean enabled) {
+    }
+
+    /**
+     * Enabled user ids in ascending order, with the email and name of each id at the same index. Not
+     * thread-safe.
+     */
+    private static final class Table {
+        private long[] ids = new long[1024];
+        private String[] emails = new String[1024];
+        private String[] names = new String[1024];
+        private int count;
+
+        void apply(Change change) {
+            if (change.enabled()) {
+                put(change.userId(), change.email(), change.fullName());
+            } else {
+                remove(change.userId());
+            }
+        }
+
+        // Appends when ids arrive in ascending order, as they do while loading
+        void put(long userId, String email, String fullName) {
+            int index = indexOf(userId);
+            if (index < 0) {
+                index = -index - 1;
+                if (count == ids.length) {
+                    int capacity = count * 3 / 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    emails = Arrays.copyOf(emails, capacity);
+                    names = Arrays.copyOf(names, capacity);
+                }
+                shift(index, index + 1, count - index);
+                ids[index] = userId;
+                count++;
+            }
+            emails[index] = email;
+            names[index] = fullName;
+        }
+
+        void remove(long userId) {
+            int index = indexOf(userId);
+            if (index >= 0) {
+                shift(index + 1, index, count - index - 1);
+                count--;
+                emails[count] = null;
+                names[count] = null;
+            }
+        }
+
+        boolean contains(long userId) {
+            return indexOf(userId) >= 0;
+        }
+
+        /**
+         * Copies up to size recipients with ids above afterId into page.
+         *
+         * @return The last id copied, or afterId if none.
+         */
+        long copyPage(long afterId, int size, List<Recipient> page) {
+            int index = indexOf(afterId);
+            int from = index >= 0 ? index + 1 : -index - 1;
+            int to = Math.min(count, from + size);
+            for (int i = from; i < to; i++) {
+                page.add(new Recipient(ids[i], emails[i], names[i]));
+            }
+            return to > from ? ids[to - 1] : afterId;
+        }
+
+        private int indexOf(long userId) {
+            return Arrays.binarySearch(ids, 0, count, userId);
+        }
+
+        private void shift(int from, int to, int length) {
+            System.arraycopy(ids, from, ids, to, length);
+            System.arraycopy(emails, from, emails, to, length);
+            System.arraycopy(names, from, names, to, length);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.onion.emailnotificationservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An alert email rendered once per send run. The document is held as two pre-encoded UTF-8
+ * segments around the recipient's name, so personalizing it costs one escape of the name and
+ * one array copy instead of rebuilding the asteroid cards, APOD section and stylesheet.
+ */
+public class RenderedEmail {
+
+    private static final ThreadLocal<HtmlBuffer> NAME_BUFFER = ThreadLocal.withInitial(() -> new HtmlBuffer(256));
+
+    // Shared, never modified
+    private final byte[] beforeName;
+    private final byte[] afterName;
+    private final String defaultName;
+
+    RenderedEmail(byte[] beforeName, byte[] afterName, String defaultName) {
+        this.beforeName = beforeName;
+        this.afterName = afterName;
+        this.defaultName = defaultName;
+    }
+
+    /**
+     * @param userName The recipient's name, or null for the default greeting.
+     * @return The complete HTML document as UTF-8 bytes, with the name HTML-escaped.
+     */
+    public byte[] personalize(String userName) {
+        HtmlBuffer name = escapedName(userName);
+        byte[] html = new byte[beforeName.length + name.size() + afterName.length];
+        System.arraycopy(beforeName, 0, html, 0, beforeName.length);
+        name.copyTo(html, beforeName.length);
+        System.arraycopy(afterName, 0, html, beforeName.length + name.size(), afterName.length);
+        return html;
+    }
+
+    /**
+     * Streams the personalized document without materializing it.
+     */
+    public void writeTo(OutputStream out, String userName) throws IOException {
+        out.write(beforeName);
+        escapedName(userName).writeTo(out);
+        out.write(afterName);
+    }
+
+    private HtmlBuffer escapedName(String userName) {
+        return NAME_BUFFER.get().reset().writeEscaped(userName != null ? userName : defaultName);
+    }
+}
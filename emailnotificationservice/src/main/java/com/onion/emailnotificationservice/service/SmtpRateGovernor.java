@@ -0,0 +1,189 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Paces SMTP sends across all sender threads and adapts the pace to what the provider accepts.
+ *
+ * Sends start at the baseline rate. A transient 4xx reply (e.g. 421 or 451 "too many messages")
+ * cuts the rate by the backoff factor and pauses all sends for throttle-pause-ms; after
+ * increase-after-successes consecutive accepted messages the rate goes up by increase-step,
+ * up to max-per-second. Only one cut is applied per pause, so a burst of rejections from
+ * messages already in flight does not collapse the rate to the minimum.
+ *
+ * Metrics: email.smtp.send.rate (current messages per second) and email.smtp.throttle.events.
+ */
+@Component
+@Slf4j
+public class SmtpRateGovernor {
+
+    private static final Pattern REPLY_CODE = Pattern.compile("^\\s*\\[?([2-5]\\d\\d)[\\s-]");
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final int increaseAfterSuccesses;
+    private final double backoffFactor;
+    private final long throttlePauseNanos;
+    private final Counter throttleEvents;
+    private final Ticker ticker;
+
+    private double rate;
+    private int consecutiveSuccesses = 0;
+    private long nextPermitAt;
+    private long pausedUntil;
+
+    /**
+     * Time source and sleep of the governor; tests replace it to control time.
+     */
+    interface Ticker {
+
+        Ticker SYSTEM = new Ticker() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void sleep(long nanos) throws InterruptedException {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    @Autowired
+    public SmtpRateGovernor(MeterRegistry meterRegistry,
+                            @Value("${email.smtp.rate.baseline-per-second:10}") double baselineRate,
+                            @Value("${email.smtp.rate.min-per-second:1}") double minRate,
+                            @Value("${email.smtp.rate.max-per-second:50}") double maxRate,
+                            @Value("${email.smtp.rate.increase-step:1}") double increaseStep,
+                            @Value("${email.smtp.rate.increase-after-successes:200}") int increaseAfterSuccesses,
+                            @Value("${email.smtp.rate.backoff-factor:0.5}") double backoffFactor,
+                            @Value("${email.smtp.rate.throttle-pause-ms:5000}") long throttlePauseMs) {
+        this(meterRegistry, baselineRate, minRate, maxRate, increaseStep, increaseAfterSuccesses, backoffFactor,
+                throttlePauseMs, Ticker.SYSTEM);
+    }
+
+    SmtpRateGovernor(MeterRegistry meterRegistry, double baselineRate, double minRate, double maxRate,
+                     double increaseStep, int increaseAfterSuccesses, double backoffFactor, long throttlePauseMs,
+                     Ticker ticker) {
+        this.minRate = Math.max(0.01, minRate);
+        this.maxRate = Math.max(this.minRate, maxRate);
+        this.rate = Math.min(this.maxRate, Math.max(this.minRate, baselineRate));
+        this.increaseStep = Math.max(0, increaseStep);
+        this.increaseAfterSuccesses = Math.max(1, increaseAfterSuccesses);
+        this.backoffFactor = Math.min(1, Math.max(0.01, backoffFactor));
+        this.throttlePauseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, throttlePauseMs));
+        this.ticker = ticker;
+        this.nextPermitAt = ticker.nanoTime();
+        this.pausedUntil = this.nextPermitAt;
+
+        Gauge.builder("email.smtp.send.rate", this, SmtpRateGovernor::getRate)
+                .description("Current SMTP send rate in messages per second")
+                .register(meterRegistry);
+        this.throttleEvents = Counter.builder("email.smtp.throttle.events")
+                .description("Transient 4xx SMTP replies that caused the send rate to back off")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Blocks until the caller may hand the next message to the SMTP server.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = ticker.nanoTime();
+            long start = latest(now, latest(nextPermitAt, pausedUntil));
+            nextPermitAt = start + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            ticker.sleep(waitNanos);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (++consecutiveSuccesses >= increaseAfterSuccesses) {
+            consecutiveSuccesses = 0;
+            if (rate < maxRate) {
+                rate = Math.min(maxRate, rate + increaseStep);
+                log.debug("SMTP send rate increased to {} msg/s", rate);
+            }
+        }
+    }
+
+    /**
+     * Records a transient rejection from the provider and backs off.
+     *
+     * @param replyCode The 4xx SMTP reply code.
+     */
+    public synchronized void onThrottled(int replyCode) {
+        throttleEvents.increment();
+        consecutiveSuccesses = 0;
+
+        long now = ticker.nanoTime();
+        if (pausedUntil - now > 0) {
+            return; // already backing off for an earlier rejection
+        }
+        rate = Math.max(minRate, rate * backoffFactor);
+        pausedUntil = now + throttlePauseNanos;
+        log.warn("SMTP server replied {}, backing off to {} msg/s and pausing sends for {} ms",
+                replyCode, rate, TimeUnit.NANOSECONDS.toMillis(throttlePauseNanos));
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Extracts the SMTP reply code from a send failure.
+     *
+     * @return The 3-digit reply code, or -1 if the failure did not come with one (e.g. a network error).
+     */
+    public static int replyCode(MessagingException e) {
+        Exception current = e;
+        while (current != null) {
+            if (current instanceof SMTPSendFailedException sendFailed) {
+                return sendFailed.getReturnCode();
+            }
+            if (current instanceof SMTPAddressFailedException addressFailed) {
+                return addressFailed.getReturnCode();
+            }
+            if (current instanceof SMTPSenderFailedException senderFailed) {
+                return senderFailed.getReturnCode();
+            }
+            if (current.getMessage() != null) {
+                // e.g. "421 4.7.0 Try again later" when the server rejects the connection
+                Matcher matcher = REPLY_CODE.matcher(current.getMessage());
+                if (matcher.find()) {
+                    return Integer.parseInt(matcher.group(1));
+                }
+            }
+            current = current instanceof MessagingException messagingException ? messagingException.getNextException() : null;
+        }
+        return -1;
+    }
+
+    private static long latest(long a, long b) {
+        return a - b > 0 ? a : b;
+    }
+}
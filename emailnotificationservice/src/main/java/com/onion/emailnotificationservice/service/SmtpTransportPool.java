@@ -0,0 +1,152 @@
+package com.onion.emailnotificationservice.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a small pool of connected, authenticated SMTP transports and reuses each one for many
+ * messages, instead of JavaMailSender.send opening and authenticating a new connection per message.
+ *
+ * At most max-connections transports are in use at once; a connection is retired after
+ * max-messages-per-connection messages or after any send failure. If the configured
+ * JavaMailSender is not a JavaMailSenderImpl (e.g. a test double), messages go through it directly.
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSender mailSender;
+    private final int maxMessagesPerConnection;
+    private final long borrowTimeoutMs;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledTransport> idleTransports;
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${email.smtp.pool.max-connections:4}") int maxConnections,
+                             @Value("${email.smtp.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                             @Value("${email.smtp.pool.borrow-timeout-ms:30000}") long borrowTimeoutMs) {
+        this.mailSender = mailSender;
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.permits = new Semaphore(Math.max(1, maxConnections));
+        this.idleTransports = new ArrayBlockingQueue<>(Math.max(1, maxConnections));
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        send(message, null);
+    }
+
+    /**
+     * Sends the message in one SMTP transaction with one RCPT TO per envelope recipient, whatever
+     * its To/Cc headers say. Used for grouped sends, where recipients are not listed in any header.
+     *
+     * @param envelopeRecipients The recipients, or null for the message's own recipients.
+     * @throws jakarta.mail.SendFailedException If the server rejected some recipients; its invalid and
+     *                                          valid-unsent addresses tell which.
+     */
+    public void send(MimeMessage message, Address[] envelopeRecipients) throws MessagingException {
+        if (!(mailSender instanceof JavaMailSenderImpl senderImpl)) {
+            if (envelopeRecipients != null) {
+                // Only the headers reach a plain JavaMailSender; Bcc is dropped from the transmitted message
+                message.setRecipients(Message.RecipientType.BCC, envelopeRecipients);
+            }
+            mailSender.send(message);
+            return;
+        }
+
+        acquirePermit();
+        PooledTransport pooled = null;
+        boolean reusable = false;
+        try {
+            pooled = borrow(senderImpl);
+            if (message.getSentDate() == null) {
+                message.setSentDate(new java.util.Date());
+            }
+            message.saveChanges();
+            pooled.transport.sendMessage(message,
+                    envelopeRecipients != null ? envelopeRecipients : message.getAllRecipients());
+            pooled.messagesSent++;
+            reusable = pooled.messagesSent < maxMessagesPerConnection;
+        } finally {
+            if (pooled != null) {
+                if (reusable) {
+                    idleTransports.offer(pooled);
+                } else {
+                    close(pooled);
+                }
+            }
+            permits.release();
+        }
+    }
+
+    public int getIdleConnections() {
+        return idleTransports.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idleTransports.poll()) != null) {
+            close(pooled);
+        }
+    }
+
+    private void acquirePermit() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for a free SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a free SMTP connection", e);
+        }
+    }
+
+    private PooledTransport borrow(JavaMailSenderImpl senderImpl) throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idleTransports.poll()) != null) {
+            if (pooled.transport.isConnected()) {
+                return pooled;
+            }
+            close(pooled); // server dropped the idle connection
+        }
+
+        Transport transport = senderImpl.getSession().getTransport(
+                senderImpl.getProtocol() != null ? senderImpl.getProtocol() : "smtp");
+        transport.connect(senderImpl.getHost(), senderImpl.getPort(), senderImpl.getUsername(), senderImpl.getPassword());
+        log.debug("Opened new SMTP connection to {}:{}", senderImpl.getHost(), senderImpl.getPort());
+        return new PooledTransport(transport);
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int messagesSent = 0;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
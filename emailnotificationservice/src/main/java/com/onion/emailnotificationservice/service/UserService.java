@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -21,6 +22,7 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final RecipientSource recipientSource;
     
     @Autowired
     private EmailService emailService;
@@ -65,10 +67,14 @@ public class UserService {
     @Transactional(readOnly = true)
     public List<UserDto> getUsersWithNotificationsEnabled() {
         log.info("Fetching users with notifications enabled");
-        return userRepository.findAll().stream()
-                .filter(User::isNotificationEnabled)
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        List<UserDto> users = new ArrayList<>();
+        recipientSource.forEach(recipient -> users.add(UserDto.builder()
+                .id(recipient.getId())
+                .fullName(recipient.getFullName())
+                .email(recipient.getEmail())
+                .notificationEnabled(true)
+                .build()));
+        return users;
     }
 
     @Transactional(readOnly = true)
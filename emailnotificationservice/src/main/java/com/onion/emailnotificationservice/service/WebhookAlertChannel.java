@@ -0,0 +1,114 @@
+package com.onion.emailnotificationservice.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.onion.emailnotificationservice.dto.NotificationMapper;
+import com.onion.emailnotificationservice.dto.WebhookAlertPayload;
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.Notification;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Posts every delivery batch as JSON to each URL in alert.webhook.urls, e.g. chat-ops integrations.
+ * Each URL is a delivery of its own, so it is retried and tracked like an email. The channel has no
+ * destinations, and so never gets deliveries, while the list is empty.
+ */
+@Component
+@Slf4j
+public class WebhookAlertChannel implements AlertChannel {
+
+    public static final String NAME = "webhook";
+    private static final int SUMMARY_NOTIFICATIONS = 5;
+
+    private final List<String> urls;
+    private final RestTemplate restTemplate;
+    private final ChannelBulkhead bulkhead;
+
+    public WebhookAlertChannel(RestTemplateBuilder restTemplateBuilder,
+                               @Qualifier("webhookSendExecutor") Executor webhookSendExecutor,
+                               @Value("${alert.webhook.urls:}") String urls,
+                               @Value("${alert.webhook.threads:2}") int threads,
+                               @Value("${alert.webhook.queue-capacity:100}") int queueCapacity,
+                               @Value("${alert.webhook.timeout-ms:10000}") long timeoutMs) {
+        this.urls = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+        Duration timeout = Duration.ofMillis(timeoutMs);
+        // The transport gives up no later than the bulkhead stops waiting, so a hung endpoint frees its thread
+        this.restTemplate = restTemplateBuilder
+                .connectTimeout(timeout)
+                .readTimeout(timeout)
+                .build();
+        this.bulkhead = new ChannelBulkhead(webhookSendExecutor, threads + queueCapacity, timeout);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ChannelBulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    @Override
+    public List<String> getDestinations() {
+        return urls;
+    }
+
+    @Override
+    public Set<Long> send(List<Delivery> deliveries, AlertContent content) {
+        WebhookAlertPayload payload = WebhookAlertPayload.builder()
+                .batchId(content.batchId())
+                .text(summary(content.notifications()))
+                .notifications(content.notifications().stream().map(NotificationMapper::toDto).toList())
+                .build();
+
+        Set<Long> failed = new HashSet<>();
+        for (Delivery delivery : deliveries) {
+            try {
+                ResponseEntity<Void> response = restTemplate.postForEntity(delivery.getDestination(), payload, Void.class);
+                log.info("Posted alert batch {} to webhook {} ({})", content.batchId(), delivery.getDestination(),
+                        response.getStatusCode().value());
+            } catch (RestClientException e) {
+                log.error("Failed to post alert batch {} to webhook {}: {}", content.batchId(), delivery.getDestination(),
+                        e.getMessage());
+                failed.add(delivery.getId());
+            }
+        }
+        return failed;
+    }
+
+    private static String summary(List<Notification> notifications) {
+        StringBuilder text = new StringBuilder()
+                .append(notifications.size()).append(" hazardous asteroid")
+                .append(notifications.size() == 1 ? "" : "s").append(" approaching: ");
+        for (int i = 0; i < Math.min(SUMMARY_NOTIFICATIONS, notifications.size()); i++) {
+            Notification notification = notifications.get(i);
+            if (i > 0) {
+                text.append("; ");
+            }
+            text.append(notification.getAsteroidName()).append(" on ").append(notification.getCloseApproachDate());
+            if (notification.getMissDistanceKilometers() != null) {
+                text.append(String.format(" at %,.0f km", notification.getMissDistanceKilometers().doubleValue()));
+            }
+        }
+        if (notifications.size() > SUMMARY_NOTIFICATIONS) {
+            text.append("; and ").append(notifications.size() - SUMMARY_NOTIFICATIONS).append(" more");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.onion.emailnotificationservice.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.onion.emailnotificationservice.service.EmailTemplate;
+import com.onion.emailnotificationservice.service.HtmlBuffer;
+import com.onion.emailnotificationservice.service.RenderedEmail;
+
+/**
+ * Compares the string-building renderer ({@link LegacyEmailTemplate}) with the HtmlBuffer-based
+ * EmailTemplate. Run with: mvn -Pbenchmark test-compile exec:exec
+ * (add -Dbenchmark.include=EmailTemplateBenchmark.legacy.* to select benchmarks).
+ *
+ * Add "-prof gc" to the JMH arguments to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final String RISK = EmailTemplate.getRiskLevelHtml(2_500_000);
+    private static final String USER_NAME = "Ada \"Stargazer\" Lovelace";
+    private static final String EXPLANATION = ("What's that dark spot on the Sun? It's the International Space Station, "
+            + "caught in transit as it passed <1/2 second> in front of the solar disk & the camera fired. ").repeat(8);
+
+    @Param({"10"})
+    private int asteroids;
+
+    private String[] names;
+    private double[] diameters;
+    private double[] distances;
+    private LocalDateTime generatedTime;
+
+    private final HtmlBuffer cards = new HtmlBuffer();
+    private final HtmlBuffer apod = new HtmlBuffer(4096);
+    private final HtmlBuffer scratch = new HtmlBuffer();
+    private RenderedEmail sharedEmail;
+
+    @Setup
+    public void setUp() {
+        names = new String[asteroids];
+        diameters = new double[asteroids];
+        distances = new double[asteroids];
+        for (int i = 0; i < asteroids; i++) {
+            names[i] = "(" + (2024000 + i) + ") 2024 A" + i;
+            diameters[i] = 120.0 + i * 173.37;
+            distances[i] = 350_000.0 + i * 1_234_567.891;
+        }
+        generatedTime = LocalDateTime.of(2026, 10, 19, 9, 30);
+        sharedEmail = EmailTemplate.createSharedEmail(renderCards(new HtmlBuffer()), renderApod(new HtmlBuffer()), generatedTime);
+    }
+
+    @Benchmark
+    public byte[] legacyRenderEmail() {
+        StringBuilder asteroidContent = new StringBuilder();
+        for (int i = 0; i < asteroids; i++) {
+            asteroidContent.append(LegacyEmailTemplate.createAsteroidCardHtml(
+                    names[i], "2026-10-21", diameters[i], distances[i], RISK));
+        }
+        String apodContent = LegacyEmailTemplate.createApodSectionHtml(
+                "ISS Solar Transit", "https://apod.nasa.gov/apod/image/iss.jpg", EXPLANATION, "2026-10-19", "A & B");
+        return LegacyEmailTemplate.createEmailHtml(asteroidContent.toString(), apodContent, generatedTime, USER_NAME)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int bufferedRenderEmail() {
+        renderCards(cards.reset());
+        renderApod(apod.reset());
+        RenderedEmail rendered = EmailTemplate.createSharedEmail(cards, apod, generatedTime);
+        return rendered.personalize(USER_NAME).length;
+    }
+
+    @Benchmark
+    public byte[] personalizeSharedEmail() {
+        return sharedEmail.personalize(USER_NAME);
+    }
+
+    @Benchmark
+    public String legacyEscape() {
+        return LegacyEmailTemplate.escapeHtml(EXPLANATION);
+    }
+
+    @Benchmark
+    public int singlePassEscape() {
+        return scratch.reset().writeEscaped(EXPLANATION).size();
+    }
+
+    @Benchmark
+    public String legacyFormatNumbers() {
+        double distance = distances[asteroids - 1];
+        return String.format("%.0f km (%.1f lunar distances)", distance, distance / 384400)
+                + String.format("%.1f km", diameters[asteroids - 1] / 1000);
+    }
+
+    @Benchmark
+    public int bufferedFormatNumbers() {
+        double distance = distances[asteroids - 1];
+        return scratch.reset()
+                .writeFixed(distance, 0).writeFixed(distance / 384400, 1)
+                .writeFixed(diameters[asteroids - 1] / 1000, 1)
+                .size();
+    }
+
+    private HtmlBuffer renderCards(HtmlBuffer out) {
+        for (int i = 0; i < asteroids; i++) {
+            EmailTemplate.writeAsteroidCard(out, names[i], "2026-10-21", diameters[i], distances[i], RISK);
+        }
+        return out;
+    }
+
+    private HtmlBuffer renderApod(HtmlBuffer out) {
+        EmailTemplate.writeApodSection(out, "ISS Solar Transit", "https://apod.nasa.gov/apod/image/iss.jpg",
+                EXPLANATION, "2026-10-19", "A & B");
+        return out;
+    }
+}
@@ -0,0 +1,117 @@
+package com.onion.emailnotificationservice.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.onion.emailnotificationservice.service.EmailTemplate;
+import com.onion.emailnotificationservice.service.HtmlBuffer;
+
+/**
+ * Checks that the HtmlBuffer-based EmailTemplate renders byte-for-byte what the string-building
+ * {@link LegacyEmailTemplate} did, so the rewrite stays a pure optimization.
+ */
+class EmailTemplateParityTest {
+
+    private static final LocalDateTime GENERATED_TIME = LocalDateTime.of(2026, 10, 19, 21, 5);
+    private static final String RISK = EmailTemplate.getRiskLevelHtml(2_500_000);
+
+    @ParameterizedTest
+    @ValueSource(doubles = {
+            // %.0f and %.1f ties, including ones whose binary value sits just below the tie
+            0.5, 1.5, 2.5, 999.5, 1050, 1150, 1250, 1350, 2450, 1005.0, 1015.0, 1000.05,
+            // Zero, negative zero and negatives that round to zero keep their sign
+            0, -0.0, -0.4, -0.5, -1.5, -1250, -0.04,
+            // Large values leave the fast path
+            999.9999, 1000, 1000.0001, 123456789.95, 1e15, 9.999999999999999e14, 1.7976931348623157e308,
+            Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+    void diameterMatchesLegacyFormatting(double diameter) {
+        assertCardParity("(2024 AB)", diameter, 1_234_567.8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {
+            // Exact lunar-distance ties for %.2f below one lunar distance and %.1f above it
+            384400 * 0.125, 384400 * 0.995, 384400 * 2.45, 384400 * 2.25, 384400 * 10.05,
+            // Ties of the kilometre figure itself
+            0.5, 192200.5, 1234567.5,
+            0, -0.0, -1, -384400 * 0.125, -1234567.5,
+            383_999.999, 384_400, 384_400.0001, 7.5e14, 1e15, 3.84e20, Double.MAX_VALUE})
+    void missDistanceMatchesLegacyFormatting(double missDistance) {
+        assertCardParity("(2024 AB)", 150, missDistance);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "(2024 AB)", "433 Eros (A898 PA)", "(433) Eros", "  2024 AB  ", "(12345)", "(12345) ", "12345",
+            "123 ", "", "   ", "<script>alert('x')</script> & \"co\"", "Bennu & <Ryugu>",
+            "Šteins", "2867 Šteins", "(99942) Apophis → Ἀπόφις", "小惑星 2024 AB", "Comet 😀 🚀"})
+    void asteroidNameMatchesLegacyCleaningAndEscaping(String asteroidName) {
+        assertCardParity(asteroidName, 150, 1_234_567.8);
+    }
+
+    @Test
+    void nullAsteroidNameMatchesLegacy() {
+        assertCardParity(null, 150, 1_234_567.8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Ada \"Stargazer\" Lovelace", "O'Brien & <Sons>", "Zoë Ångström", "José Müller-Łukasiewicz",
+            "张伟", "Ὀδυσσεύς 🚀", ""})
+    void completeEmailMatchesLegacy(String userName) {
+        assertEmailParity(userName, "A & B © 2026");
+    }
+
+    @Test
+    void defaultGreetingAndMissingCreditMatchLegacy() {
+        assertEmailParity(null, null);
+        assertEmailParity(null, "");
+    }
+
+    @Test
+    void emailWithoutAsteroidsOrApodMatchesLegacy() {
+        String legacy = LegacyEmailTemplate.createEmailHtml("", "", GENERATED_TIME, "Ada");
+        byte[] buffered = EmailTemplate.createSharedEmail(new HtmlBuffer(), new HtmlBuffer(), GENERATED_TIME)
+                .personalize("Ada");
+
+        assertEquals(legacy, new String(buffered, StandardCharsets.UTF_8));
+    }
+
+    private static void assertCardParity(String asteroidName, double diameter, double missDistance) {
+        String legacy = LegacyEmailTemplate.createAsteroidCardHtml(asteroidName, "2026-10-21", diameter, missDistance, RISK);
+
+        assertEquals(legacy, EmailTemplate.createAsteroidCardHtml(asteroidName, "2026-10-21", diameter, missDistance, RISK));
+        HtmlBuffer out = new HtmlBuffer(16);
+        EmailTemplate.writeAsteroidCard(out, asteroidName, "2026-10-21", diameter, missDistance, RISK);
+        assertEquals(legacy, out.toString());
+    }
+
+    private static void assertEmailParity(String userName, String copyright) {
+        String explanation = "A transit <1/2 second> long & \"sharp\" — it's the ISS over the Sun’s limb.";
+        StringBuilder legacyCards = new StringBuilder();
+        HtmlBuffer cards = new HtmlBuffer();
+        double[] distances = {384400 * 0.125, 1_234_567.5, 7_500_000};
+        for (int i = 0; i < distances.length; i++) {
+            String name = "(" + (2024000 + i) + ") 2024 Ä" + i;
+            double diameter = 1250 + i * 100;
+            String risk = EmailTemplate.getRiskLevelHtml(distances[i]);
+            legacyCards.append(LegacyEmailTemplate.createAsteroidCardHtml(name, "2026-10-21", diameter, distances[i], risk));
+            EmailTemplate.writeAsteroidCard(cards, name, "2026-10-21", diameter, distances[i], risk);
+        }
+        String legacyApod = LegacyEmailTemplate.createApodSectionHtml(
+                "Sun & ISS", "https://apod.nasa.gov/apod/image/iss.jpg?a=1&b=2", explanation, "2026-10-19", copyright);
+        HtmlBuffer apod = new HtmlBuffer();
+        EmailTemplate.writeApodSection(apod,
+                "Sun & ISS", "https://apod.nasa.gov/apod/image/iss.jpg?a=1&b=2", explanation, "2026-10-19", copyright);
+
+        String legacy = LegacyEmailTemplate.createEmailHtml(legacyCards.toString(), legacyApod, GENERATED_TIME, userName);
+        byte[] buffered = EmailTemplate.createSharedEmail(cards, apod, GENERATED_TIME).personalize(userName);
+
+        assertEquals(legacy, new String(buffered, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package com.onion.emailnotificationservice.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the NeoWs service from its packaged jar in a child JVM, pointed at the stub NASA server
+ * and the embedded Kafka broker. NeoWs needs Java 21 and cannot share the test JVM with this
+ * service, so the two talk exactly as they do in production: through Kafka.
+ */
+@Slf4j
+class NeoWsProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final int port;
+    private final Process process;
+
+    NeoWsProcess(String javaExecutable, File jar, File logFile, String nasaBaseUrl, String kafkaBrokers,
+                 int partitions) throws IOException {
+        this.port = freePort();
+
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable);
+        command.add("-jar");
+        command.add(jar.getAbsolutePath());
+        command.add("--server.port=" + port);
+        command.add("--nasa.neo.api.url=" + nasaBaseUrl + StubNasaServer.FEED_PATH);
+        command.add("--nasa.api.key=harness");
+        command.add("--spring.kafka.bootstrap-servers=" + kafkaBrokers);
+        command.add("--kafka.topic.asteroid-alert.partitions=" + partitions);
+
+        log.info("Starting NeoWs on port {}, log at {}", port, logFile);
+        this.process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+    }
+
+    /**
+     * Blocks until the NeoWs health endpoint answers.
+     */
+    void awaitStarted() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("NeoWs exited during startup with code " + process.exitValue());
+            }
+            try {
+                if (get("/api/v1/asteroid-alerts/health").statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(250);
+        }
+        throw new IllegalStateException("NeoWs did not start within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Runs one alert cycle: NeoWs fetches the feed and publishes every hazardous asteroid,
+     * returning once Kafka has acknowledged all of them.
+     */
+    HttpResponse<String> triggerAlert() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/v1/asteroid-alerts/alert"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return httpClient.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
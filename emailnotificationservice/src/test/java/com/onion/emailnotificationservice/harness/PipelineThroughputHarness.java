@@ -0,0 +1,215 @@
+package com.onion.emailnotificationservice.harness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.entity.User;
+import com.onion.emailnotificationservice.repository.DeliveryRepository;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+import com.onion.emailnotificationservice.repository.UserRepository;
+import com.onion.emailnotificationservice.service.AlertLatencyMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * End-to-end run of both services without any external dependency: NeoWs (as a child JVM)
+ * fetches a generated feed from {@link StubNasaServer} and publishes to embedded Kafka, this
+ * service consumes and stores the alerts in H2 and mails every recipient through {@link SmtpSink}.
+ *
+ * Reports events/s from the alert trigger until the last notification is stored, emails/s
+ * between the first and last message accepted by the sink, and the p99 of every
+ * asteroid.alert.latency stage. Not part of the regular build; see the harness profile in the
+ * README. Sizes and limits are set with -Dharness.* properties:
+ * - harness.asteroids-per-day (250) and harness.hazardous-percent (10): feed size, 8 days per run
+ * - harness.recipients (1000): users with notifications enabled
+ * - harness.smtp-delay-ms (0): time the sink takes to accept each message
+ * - harness.smtp-rate-per-second (1000): send rate limit, high enough to measure the pipeline
+ * - email.delivery.grouped.enabled, email.delivery.grouped.size: compare grouped with personalized sending
+ * - harness.min-events-per-second, harness.min-emails-per-second (0): fail below these rates
+ * - harness.neows.jar, harness.neows.java: NeoWs jar and a Java 21 executable to run it
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.kafka.admin.auto-create=true",
+        "spring.datasource.url=jdbc:h2:mem:harness;NON_KEYWORDS=USER",
+        "management.health.mail.enabled=false",
+        "notification.kafka.concurrency=" + PipelineThroughputHarness.PARTITIONS,
+        "email.smtp.rate.baseline-per-second=${harness.smtp-rate-per-second:1000}",
+        "email.smtp.rate.max-per-second=${harness.smtp-rate-per-second:1000}",
+        "logging.level.com.onion.emailnotificationservice=WARN",
+        "logging.level.com.onion.emailnotificationservice.harness=INFO"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = PipelineThroughputHarness.PARTITIONS, topics = "asteroid-alert")
+class PipelineThroughputHarness {
+
+    static final int PARTITIONS = 6;
+
+    private static final int ASTEROIDS_PER_DAY = Integer.getInteger("harness.asteroids-per-day", 250);
+    private static final int HAZARDOUS_PERCENT = Integer.getInteger("harness.hazardous-percent", 10);
+    private static final int RECIPIENTS = Integer.getInteger("harness.recipients", 1000);
+    private static final long SMTP_DELAY_MS = Long.getLong("harness.smtp-delay-ms", 0);
+    private static final double MIN_EVENTS_PER_SECOND = Double.parseDouble(System.getProperty("harness.min-events-per-second", "0"));
+    private static final double MIN_EMAILS_PER_SECOND = Double.parseDouble(System.getProperty("harness.min-emails-per-second", "0"));
+    private static final long TIMEOUT_SECONDS = Long.getLong("harness.timeout-seconds", 300);
+
+    private static final StubNasaServer NASA;
+    private static final SmtpSink SMTP;
+
+    static {
+        try {
+            NASA = new StubNasaServer(ASTEROIDS_PER_DAY, HAZARDOUS_PERCENT);
+            SMTP = new SmtpSink(SMTP_DELAY_MS);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void stubEndpoints(DynamicPropertyRegistry registry) {
+        registry.add("nasa.apod.api.url", () -> NASA.baseUrl() + StubNasaServer.APOD_PATH);
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", SMTP::getPort);
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterAll
+    static void stopStubs() throws Exception {
+        NASA.close();
+        SMTP.close();
+    }
+
+    @Test
+    void alertPipelineThroughput() throws Exception {
+        registerRecipients();
+
+        try (NeoWsProcess neoWs = new NeoWsProcess(neoWsJava(), neoWsJar(), new File("target/harness-neows.log"),
+                NASA.baseUrl(), embeddedKafka.getBrokersAsString(), PARTITIONS)) {
+            neoWs.awaitStarted();
+
+            long alertStart = System.nanoTime();
+            HttpResponse<String> alert = neoWs.triggerAlert();
+            long publishedNanos = System.nanoTime() - alertStart;
+            assertThat(alert.statusCode()).as(alert.body()).isEqualTo(200);
+
+            int events = NASA.getLastFeedHazardous();
+            await("all " + events + " notifications stored", () -> notificationRepository.count() == events);
+            long storedNanos = System.nanoTime() - alertStart;
+
+            // Storing the notifications triggers the email run
+            await("all notifications emailed", () -> notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+            long emails = deliveryRepository.count();
+            await("all " + emails + " emails accepted by the SMTP sink", () -> SMTP.getRecipients() >= emails);
+
+            double eventsPerSecond = perSecond(events, storedNanos);
+            double emailsPerSecond = perSecond(SMTP.getRecipients(), SMTP.getAcceptWindowNanos());
+            report(events, publishedNanos, storedNanos, eventsPerSecond, emails, emailsPerSecond);
+
+            assertThat(SMTP.getRecipients()).isEqualTo(emails);
+            assertThat(emails).isGreaterThanOrEqualTo(RECIPIENTS);
+            assertThat(eventsPerSecond).as("events/s").isGreaterThanOrEqualTo(MIN_EVENTS_PER_SECOND);
+            assertThat(emailsPerSecond).as("emails/s").isGreaterThanOrEqualTo(MIN_EMAILS_PER_SECOND);
+        }
+    }
+
+    private void registerRecipients() {
+        List<User> users = new ArrayList<>(RECIPIENTS);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            users.add(User.builder()
+                    .fullName("Harness User " + i)
+                    .email("harness-user-" + i + "@example.com")
+                    .notificationEnabled(true)
+                    .build());
+        }
+        userRepository.saveAll(users);
+    }
+
+    private void report(int events, long publishedNanos, long storedNanos, double eventsPerSecond,
+                        long emails, double emailsPerSecond) {
+        StringBuilder report = new StringBuilder("\n=== Alert pipeline throughput ===\n");
+        report.append(String.format("Feed:        %d asteroids/day, %d%% hazardous, %d feed request(s)%n",
+                ASTEROIDS_PER_DAY, HAZARDOUS_PERCENT, NASA.getFeedRequests()));
+        report.append(String.format("Events:      %d published in %d ms, stored after %d ms -> %.1f events/s%n",
+                events, TimeUnit.NANOSECONDS.toMillis(publishedNanos), TimeUnit.NANOSECONDS.toMillis(storedNanos),
+                eventsPerSecond));
+        report.append(String.format("Emails:      %d to %d recipients in %d SMTP message(s) over %d connection(s) -> %.1f emails/s%n",
+                emails, RECIPIENTS, SMTP.getMessages(), SMTP.getConnections(), emailsPerSecond));
+        for (AlertLatencyMetrics.Stage stage : AlertLatencyMetrics.Stage.values()) {
+            String tag = stage.name().toLowerCase();
+            Timer timer = meterRegistry.find("asteroid.alert.latency").tag("stage", tag).timer();
+            report.append(String.format("Latency:     %-20s p99 %8.1f ms (%d samples)%n",
+                    tag, timer == null ? Double.NaN : p99Millis(timer), timer == null ? 0 : timer.count()));
+        }
+        log.info(report.toString());
+    }
+
+    private static double p99Millis(Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? Double.NaN : count * 1_000_000_000.0 / nanos;
+    }
+
+    private static void await(String condition, BooleanSupplier done) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!done.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out after " + TIMEOUT_SECONDS + " s waiting for " + condition);
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static File neoWsJar() {
+        File jar = new File(System.getProperty("harness.neows.jar", "../NeoWs/target/NeoWs-0.0.1-SNAPSHOT.jar"));
+        assertThat(jar).as("NeoWs jar; build it with ./mvnw -DskipTests package in NeoWs or set -Dharness.neows.jar")
+                .isFile();
+        return jar;
+    }
+
+    private static String neoWsJava() {
+        return System.getProperty("harness.neows.java", System.getProperty("java.home") + "/bin/java");
+    }
+}
@@ -0,0 +1,149 @@
+package com.onion.emailnotificationservice.harness;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process SMTP server that accepts and discards every message. Speaks just enough of RFC 5321
+ * for Jakarta Mail without AUTH or STARTTLS, one thread per connection, and can add a fixed delay
+ * before acknowledging each message to mimic a provider's response time.
+ */
+@Slf4j
+class SmtpSink implements AutoCloseable {
+
+    private final long acceptDelayMs;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger recipients = new AtomicInteger();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong firstAcceptedNanos = new AtomicLong();
+    private final AtomicLong lastAcceptedNanos = new AtomicLong();
+
+    SmtpSink(long acceptDelayMs) throws IOException {
+        this.acceptDelayMs = acceptDelayMs;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::acceptLoop);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * Recipients of all accepted messages; equals getMessages() unless grouped sending is on.
+     */
+    int getRecipients() {
+        return recipients.get();
+    }
+
+    int getConnections() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Time between the first and the last accepted message, in nanoseconds.
+     */
+    long getAcceptWindowNanos() {
+        return lastAcceptedNanos.get() - firstAcceptedNanos.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                // Replies are small writes; without this Nagle's algorithm delays every round trip
+                socket.setTcpNoDelay(true);
+                connectionCount.incrementAndGet();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("SMTP sink failed to accept a connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost harness SMTP sink");
+            String line;
+            int transactionRecipients = 0;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250-8BITMIME\r\n250 SIZE 52428800");
+                    case "HELO" -> reply(out, "250 localhost");
+                    case "MAIL", "RSET" -> {
+                        transactionRecipients = 0;
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        transactionRecipients++;
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Message body is discarded
+                        }
+                        acknowledgeMessage(out, transactionRecipients);
+                        transactionRecipients = 0;
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            log.debug("SMTP sink connection closed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acknowledgeMessage(OutputStream out, int transactionRecipients) throws IOException, InterruptedException {
+        if (acceptDelayMs > 0) {
+            TimeUnit.MILLISECONDS.sleep(acceptDelayMs);
+        }
+        long now = System.nanoTime();
+        firstAcceptedNanos.compareAndSet(0, now);
+        lastAcceptedNanos.accumulateAndGet(now, Math::max);
+        recipients.addAndGet(transactionRecipients);
+        messages.incrementAndGet();
+        reply(out, "250 OK queued");
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package com.onion.emailnotificationservice.harness;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for api.nasa.gov. The NeoWs feed endpoint generates asteroidsPerDay asteroids
+ * for every day of the requested range, hazardousPercent of them potentially hazardous; the APOD
+ * endpoint returns a fixed picture. Responses are deterministic for a given range.
+ */
+class StubNasaServer implements AutoCloseable {
+
+    static final String FEED_PATH = "/neo/rest/v1/feed";
+    static final String APOD_PATH = "/planetary/apod";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int asteroidsPerDay;
+    private final int hazardousPercent;
+    private final HttpServer server;
+    private final AtomicInteger feedRequests = new AtomicInteger();
+    private final AtomicInteger lastFeedHazardous = new AtomicInteger();
+
+    StubNasaServer(int asteroidsPerDay, int hazardousPercent) throws IOException {
+        this.asteroidsPerDay = asteroidsPerDay;
+        this.hazardousPercent = hazardousPercent;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(FEED_PATH, this::serveFeed);
+        server.createContext(APOD_PATH, this::serveApod);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    int getFeedRequests() {
+        return feedRequests.get();
+    }
+
+    /**
+     * Hazardous asteroids in the most recently served feed, i.e. the events NeoWs should publish.
+     */
+    int getLastFeedHazardous() {
+        return lastFeedHazardous.get();
+    }
+
+    private void serveFeed(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI());
+        LocalDate from = LocalDate.parse(query.get("start_date"));
+        LocalDate to = LocalDate.parse(query.get("end_date"));
+
+        Map<String, List<Map<String, Object>>> nearEarthObjects = new LinkedHashMap<>();
+        int count = 0;
+        int hazardous = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<Map<String, Object>> asteroids = new ArrayList<>(asteroidsPerDay);
+            for (int i = 0; i < asteroidsPerDay; i++) {
+                boolean isHazardous = i % 100 < hazardousPercent;
+                asteroids.add(asteroid(date, i, isHazardous));
+                count++;
+                if (isHazardous) {
+                    hazardous++;
+                }
+            }
+            nearEarthObjects.put(date.toString(), asteroids);
+        }
+
+        Map<String, Object> feed = new LinkedHashMap<>();
+        feed.put("element_count", count);
+        feed.put("near_earth_objects", nearEarthObjects);
+        lastFeedHazardous.set(hazardous);
+        feedRequests.incrementAndGet();
+        respond(exchange, objectMapper.writeValueAsBytes(feed));
+    }
+
+    private static Map<String, Object> asteroid(LocalDate date, int index, boolean hazardous) {
+        double minDiameter = 20 + (index % 50) * 10;
+        Map<String, Object> asteroid = new LinkedHashMap<>();
+        asteroid.put("id", date.toString().replace("-", "") + String.format("%05d", index));
+        asteroid.put("name", "(" + date + " H" + index + ")");
+        asteroid.put("is_potentially_hazardous_asteroid", hazardous);
+        asteroid.put("estimated_diameter", Map.of("meters", Map.of(
+                "estimated_diameter_min", minDiameter,
+                "estimated_diameter_max", minDiameter * 2.2)));
+        asteroid.put("close_approach_data", List.of(Map.of(
+                "close_approach_date", date.toString(),
+                "miss_distance", Map.of("kilometers", String.valueOf(250_000 + index * 7_919L)))));
+        return asteroid;
+    }
+
+    private void serveApod(HttpExchange exchange) throws IOException {
+        String date = query(exchange.getRequestURI()).getOrDefault("date", LocalDate.now().toString());
+        Map<String, Object> apod = new LinkedHashMap<>();
+        apod.put("date", date);
+        apod.put("title", "Harness Nebula");
+        apod.put("explanation", "A fixed picture served by the throughput harness.");
+        apod.put("media_type", "image");
+        apod.put("service_version", "v1");
+        apod.put("url", "https://apod.nasa.gov/apod/image/harness.jpg");
+        apod.put("hdurl", "https://apod.nasa.gov/apod/image/harness.jpg");
+        respond(exchange, objectMapper.writeValueAsBytes(apod));
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new LinkedHashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,177 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.Notification;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatches a mixed chunk of email and webhook deliveries while the email channel is stalled, as
+ * with an unresponsive SMTP server. Webhooks go to a local stub and must all be delivered at full
+ * speed, emails beyond the email bulkhead must be deferred rather than block the run, and the
+ * stalled emails must still go out once the server recovers.
+ */
+@Slf4j
+class AlertDispatcherThroughputTest {
+
+    private static final int WEBHOOK_URLS = 4;
+    private static final int WEBHOOK_DELIVERIES = 400;
+    private static final int EMAIL_DELIVERIES = 50;
+    private static final int EMAIL_THREADS = 1;
+    private static final int EMAIL_QUEUE_CAPACITY = 4;
+
+    private final AtomicInteger webhookPosts = new AtomicInteger();
+    private final CountDownLatch smtpRecovered = new CountDownLatch(1);
+    private final AtomicInteger emailsSent = new AtomicInteger();
+
+    private HttpServer webhookStub;
+    private ThreadPoolTaskExecutor webhookExecutor;
+    private ThreadPoolTaskExecutor emailExecutor;
+    private AlertDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webhookStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        webhookStub.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            webhookPosts.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        webhookStub.setExecutor(Executors.newFixedThreadPool(8));
+        webhookStub.start();
+
+        webhookExecutor = executor("webhook-send-", 8, WEBHOOK_DELIVERIES);
+        emailExecutor = executor("mail-send-", EMAIL_THREADS, EMAIL_QUEUE_CAPACITY);
+
+        WebhookAlertChannel webhookChannel = new WebhookAlertChannel(new RestTemplateBuilder(), webhookExecutor,
+                "", 8, WEBHOOK_DELIVERIES, 10000);
+        AlertChannel stalledEmailChannel = new AlertChannel() {
+            private final ChannelBulkhead bulkhead = new ChannelBulkhead(emailExecutor,
+                    EMAIL_THREADS + EMAIL_QUEUE_CAPACITY, Duration.ofSeconds(30));
+
+            @Override
+            public String getName() {
+                return EMAIL;
+            }
+
+            @Override
+            public ChannelBulkhead getBulkhead() {
+                return bulkhead;
+            }
+
+            @Override
+            public Set<Long> send(List<Delivery> deliveries, AlertContent content) {
+                try {
+                    smtpRecovered.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                emailsSent.addAndGet(deliveries.size());
+                return Set.of();
+            }
+        };
+        dispatcher = new AlertDispatcher(List.of(stalledEmailChannel, webhookChannel));
+    }
+
+    @AfterEach
+    void tearDown() {
+        smtpRecovered.countDown();
+        webhookExecutor.shutdown();
+        emailExecutor.shutdown();
+        webhookStub.stop(0);
+    }
+
+    @Test
+    void webhooksKeepFlowingWhileEmailIsStalled() {
+        String baseUrl = "http://localhost:" + webhookStub.getAddress().getPort() + "/hook/";
+        List<Delivery> deliveries = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < Math.max(WEBHOOK_DELIVERIES, EMAIL_DELIVERIES); i++) {
+            if (i < EMAIL_DELIVERIES) {
+                deliveries.add(Delivery.builder().id(id++).batchId(1L).channel(AlertChannel.EMAIL)
+                        .email("user" + i + "@example.com").fullName("User " + i).build());
+            }
+            if (i < WEBHOOK_DELIVERIES) {
+                deliveries.add(Delivery.builder().id(id++).batchId(1L).channel(WebhookAlertChannel.NAME)
+                        .destination(baseUrl + (i % WEBHOOK_URLS)).build());
+            }
+        }
+        Optional<AlertContent> content = Optional.of(AlertContent.of(1L, List.of(notification()), null));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<AlertDispatcher.Outcome>> outcomes = dispatcher.dispatch(deliveries, batchId -> content);
+        long dispatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<CompletableFuture<AlertDispatcher.Outcome>> webhookOutcomes = new ArrayList<>();
+        List<CompletableFuture<AlertDispatcher.Outcome>> emailOutcomes = new ArrayList<>();
+        for (int i = 0; i < deliveries.size(); i++) {
+            boolean webhook = WebhookAlertChannel.NAME.equals(deliveries.get(i).getChannel());
+            (webhook ? webhookOutcomes : emailOutcomes).add(outcomes.get(i));
+        }
+        webhookOutcomes.forEach(outcome -> assertThat(outcome.join()).isEqualTo(AlertDispatcher.Outcome.SENT));
+        long webhookMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        log.info("Dispatched {} deliveries in {} ms; {} webhooks delivered in {} ms ({} webhooks/s) with email stalled",
+                deliveries.size(), dispatchMillis, WEBHOOK_DELIVERIES, webhookMillis,
+                WEBHOOK_DELIVERIES * 1000L / webhookMillis);
+
+        // Submitting never waited for the stalled channel, and the webhooks did not wait for it either
+        assertThat(webhookPosts.get()).isEqualTo(WEBHOOK_DELIVERIES);
+        assertThat(emailsSent.get()).isZero();
+        List<CompletableFuture<AlertDispatcher.Outcome>> accepted = emailOutcomes.stream()
+                .filter(outcome -> !(outcome.isDone() && outcome.join() == AlertDispatcher.Outcome.DEFERRED))
+                .toList();
+        assertThat(accepted).hasSize(EMAIL_THREADS + EMAIL_QUEUE_CAPACITY);
+        assertThat(accepted).noneMatch(CompletableFuture::isDone);
+
+        // Once SMTP recovers the accepted emails go out; the deferred ones are left for the next run
+        smtpRecovered.countDown();
+        accepted.forEach(outcome -> assertThat(outcome.join()).isEqualTo(AlertDispatcher.Outcome.SENT));
+        assertThat(emailsSent.get()).isEqualTo(EMAIL_THREADS + EMAIL_QUEUE_CAPACITY);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+
+    private static Notification notification() {
+        return Notification.builder()
+                .id(1L)
+                .asteroidName("(2024 AB)")
+                .closeApproachDate(LocalDate.now().plusDays(3))
+                .missDistanceKilometers(new BigDecimal("1234567.8"))
+                .build();
+    }
+}
@@ -0,0 +1,351 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import com.onion.NeoWs.event.AsteroidCollisionEvent;
+import com.onion.emailnotificationservice.dto.DeadLetterReplayResult;
+import com.onion.emailnotificationservice.entity.Notification;
+
+/**
+ * Runs the batch listener, the retry listener and the dead-letter replay against an embedded
+ * broker. Storing is mocked per asteroid, so each test decides which of its records fail and
+ * how often; test records use unique asteroid names and never see each other's failures.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.datasource.url=jdbc:h2:mem:retryflow;NON_KEYWORDS=USER",
+        "management.health.mail.enabled=false",
+        "notification.kafka.batch-enabled=true",
+        "notification.kafka.concurrency=1",
+        "notification.kafka.retry.delays-ms=200,200"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = {AlertRetryTopics.MAIN_TOPIC, "asteroid-alert-retry-0", "asteroid-alert-retry-1",
+        AlertRetryTopics.DEAD_LETTER_TOPIC})
+class AlertRetryFlowTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private DeadLetterReplayService deadLetterReplayService;
+
+    @MockBean
+    private NotificationIngestionService notificationIngestionService;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private NasaApodService nasaApodService;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    // asteroid -> upserts still to fail; a negative count fails every time
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    // asteroids whose upsert fails whenever it is part of a multi-record batch
+    private final Set<String> failInBatches = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    // asteroid -> thread that stored it
+    private final Map<String, String> stored = new ConcurrentHashMap<>();
+    // asteroids passed to each upsert call
+    private final List<List<String>> upserts = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void simulateStorage() {
+        doAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            upserts.add(notifications.stream().map(Notification::getAsteroidName).toList());
+            for (Notification notification : notifications) {
+                String asteroid = notification.getAsteroidName();
+                attempts.computeIfAbsent(asteroid, name -> new AtomicInteger()).incrementAndGet();
+                if (notifications.size() > 1 && failInBatches.contains(asteroid)) {
+                    throw new IllegalStateException("Simulated batch failure for " + asteroid);
+                }
+                Integer remaining = failures.get(asteroid);
+                if (remaining != null && remaining != 0) {
+                    failures.computeIfPresent(asteroid, (name, count) -> count > 0 ? count - 1 : count);
+                    throw new IllegalStateException("Simulated storage failure for " + asteroid);
+                }
+            }
+            String thread = Thread.currentThread().getName();
+            notifications.forEach(notification -> stored.put(notification.getAsteroidName(), thread));
+            return notifications.size();
+        }).when(notificationIngestionService).upsert(anyList());
+    }
+
+    @Test
+    void unreadableRecordGoesStraightToTheDeadLetterTopic() {
+        String key = unique("poison");
+        publishRaw(key, "{\"asteroidName\": not json");
+
+        ConsumerRecord<String, byte[]> deadLetter = awaitDeadLetter(key);
+
+        assertThat(new String(deadLetter.value(), StandardCharsets.UTF_8)).isEqualTo("{\"asteroidName\": not json");
+        assertThat(header(deadLetter, KafkaHeaders.DLT_ORIGINAL_TOPIC)).isEqualTo(AlertRetryTopics.MAIN_TOPIC);
+    }
+
+    @Test
+    void invalidEventIsNotRetried() {
+        String asteroid = unique("invalid");
+        publish(asteroid, event(asteroid).closeApproachDate("not-a-date").build());
+
+        ConsumerRecord<String, byte[]> deadLetter = awaitDeadLetter(asteroid);
+
+        assertThat(header(deadLetter, KafkaHeaders.DLT_ORIGINAL_TOPIC)).isEqualTo(AlertRetryTopics.MAIN_TOPIC);
+        assertThat(attempts).doesNotContainKey(asteroid);
+    }
+
+    @Test
+    void eventWithoutMissDistanceIsNotRetried() {
+        String asteroid = unique("no-distance");
+        publish(asteroid, event(asteroid).missDistanceKilometers(null).build());
+
+        ConsumerRecord<String, byte[]> deadLetter = awaitDeadLetter(asteroid);
+
+        assertThat(header(deadLetter, KafkaHeaders.DLT_ORIGINAL_TOPIC)).isEqualTo(AlertRetryTopics.MAIN_TOPIC);
+        assertThat(attempts).doesNotContainKey(asteroid);
+    }
+
+    @Test
+    void flakyRecordIsStoredFromTheFirstRetryTopic() {
+        String asteroid = unique("flaky");
+        failTimes(asteroid, 2); // the batched upsert and its one-by-one fallback on asteroid-alert
+        publish(asteroid, event(asteroid).build());
+
+        await(() -> stored.containsKey(asteroid));
+
+        assertThat(stored.get(asteroid)).startsWith("notification-retry-");
+        assertThat(attempts.get(asteroid)).hasValue(3);
+    }
+
+    @Test
+    void recordThatKeepsFailingEndsUpOnTheDeadLetterTopicAfterTheLastRetry() {
+        String asteroid = unique("exhausted");
+        failAlways(asteroid);
+        publish(asteroid, event(asteroid).build());
+
+        ConsumerRecord<String, byte[]> deadLetter = awaitDeadLetter(asteroid);
+
+        assertThat(header(deadLetter, KafkaHeaders.DLT_ORIGINAL_TOPIC)).isEqualTo("asteroid-alert-retry-1");
+        assertThat(header(deadLetter, KafkaHeaders.DLT_EXCEPTION_MESSAGE)).contains("Simulated storage failure");
+        // Batch plus one-by-one on the main topic, then once per retry topic
+        assertThat(attempts.get(asteroid)).hasValue(4);
+        assertThat(stored).doesNotContainKey(asteroid);
+    }
+
+    @Test
+    void replayRepublishesDeadLettersAndCommitsItsPosition() {
+        String first = unique("replay-a");
+        String second = unique("replay-b");
+        failAlways(first);
+        failAlways(second);
+        publish(first, event(first).build());
+        awaitDeadLetter(first);
+        publish(second, event(second).build());
+        awaitDeadLetter(second);
+        // The outage is over
+        failures.remove(first);
+        failures.remove(second);
+
+        long committedBefore = committedReplayOffset();
+        DeadLetterReplayResult one = deadLetterReplayService.replay(1);
+
+        assertThat(one.getReplayed()).isEqualTo(1);
+        assertThat(committedReplayOffset()).isEqualTo(committedBefore + 1);
+
+        long endOffset = deadLetterEndOffset();
+        DeadLetterReplayResult rest = deadLetterReplayService.replay(1000);
+
+        assertThat(rest.getRemaining()).isZero();
+        assertThat(committedReplayOffset()).isGreaterThanOrEqualTo(endOffset);
+        await(() -> stored.containsKey(first) && stored.containsKey(second));
+        assertThat(stored.get(first)).startsWith("notification-batch-");
+        assertThat(stored.get(second)).startsWith("notification-batch-");
+    }
+
+    @Test
+    void failedBatchIsStoredOneRecordAtATime() {
+        List<String> asteroids = List.of(unique("batch-a"), unique("batch-b"), unique("batch-c"));
+        failInBatches.add(asteroids.get(1));
+
+        // Published while the listener is paused, so they are polled together
+        MessageListenerContainer container = registry.getListenerContainer("notification-batch");
+        container.pause();
+        await(container::isContainerPaused);
+        publishAll(asteroids.stream().map(asteroid -> event(asteroid).build()).toList());
+        container.resume();
+
+        await(() -> stored.keySet().containsAll(asteroids));
+
+        List<List<String>> calls = upserts.stream().filter(asteroids::containsAll).toList();
+        // The batched upsert that failed is followed by one upsert per record it held
+        List<String> batch = calls.stream().filter(call -> call.size() > 1).findFirst().orElseThrow();
+        int failedAt = calls.indexOf(batch);
+        assertThat(batch).contains(asteroids.get(1));
+        assertThat(calls.subList(failedAt + 1, calls.size()))
+                .containsExactlyElementsOf(batch.stream().map(List::of).toList());
+        asteroids.forEach(asteroid -> assertThat(stored.get(asteroid)).startsWith("notification-batch-"));
+    }
+
+    private void failTimes(String asteroid, int times) {
+        failures.put(asteroid, times);
+    }
+
+    private void failAlways(String asteroid) {
+        failures.put(asteroid, -1);
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+
+    private static AsteroidCollisionEvent.AsteroidCollisionEventBuilder event(String asteroid) {
+        return AsteroidCollisionEvent.builder()
+                .asteroidName(asteroid)
+                .closeApproachDate("2026-10-21")
+                .missDistanceKilometers("1234567.8")
+                .estimatedDiameterAverageMeters(250.0);
+    }
+
+    private void publish(String key, AsteroidCollisionEvent event) {
+        send(new JsonSerializer<>(), key, event);
+    }
+
+    private void publishAll(List<AsteroidCollisionEvent> events) {
+        DefaultKafkaProducerFactory<String, AsteroidCollisionEvent> producerFactory = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(embeddedKafka), new StringSerializer(), new JsonSerializer<>());
+        try {
+            KafkaTemplate<String, AsteroidCollisionEvent> template = new KafkaTemplate<>(producerFactory);
+            events.forEach(event -> template.send(AlertRetryTopics.MAIN_TOPIC, event.getAsteroidName(), event));
+            template.flush();
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private void publishRaw(String key, String payload) {
+        send(new StringSerializer(), key, payload);
+    }
+
+    private <V> void send(Serializer<V> valueSerializer, String key, V value) {
+        DefaultKafkaProducerFactory<String, V> producerFactory = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(embeddedKafka), new StringSerializer(), valueSerializer);
+        try {
+            KafkaTemplate<String, V> template = new KafkaTemplate<>(producerFactory);
+            template.send(new ProducerRecord<>(AlertRetryTopics.MAIN_TOPIC, key, value)).join();
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private ConsumerRecord<String, byte[]> awaitDeadLetter(String key) {
+        try (Consumer<String, byte[]> consumer = deadLetterConsumer()) {
+            TopicPartition partition = new TopicPartition(AlertRetryTopics.DEAD_LETTER_TOPIC, 0);
+            consumer.assign(List.of(partition));
+            consumer.seekToBeginning(List.of(partition));
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (key.equals(record.key())) {
+                        return record;
+                    }
+                }
+            }
+        }
+        throw new AssertionError("No dead letter for " + key + " within " + TIMEOUT);
+    }
+
+    private long deadLetterEndOffset() {
+        try (Consumer<String, byte[]> consumer = deadLetterConsumer()) {
+            TopicPartition partition = new TopicPartition(AlertRetryTopics.DEAD_LETTER_TOPIC, 0);
+            return consumer.endOffsets(List.of(partition)).get(partition);
+        }
+    }
+
+    private long committedReplayOffset() {
+        try {
+            OffsetAndMetadata offset = KafkaTestUtils.getCurrentOffset(embeddedKafka.getBrokersAsString(),
+                    "notification-dlt-replay", AlertRetryTopics.DEAD_LETTER_TOPIC, 0);
+            return offset == null ? 0 : offset.offset();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Consumer<String, byte[]> deadLetterConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within " + TIMEOUT);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
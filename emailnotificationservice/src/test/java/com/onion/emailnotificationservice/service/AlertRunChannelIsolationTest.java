@@ -0,0 +1,358 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.DeliveryStatus;
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.entity.User;
+import com.onion.emailnotificationservice.repository.DeliveryBatchRepository;
+import com.onion.emailnotificationservice.repository.DeliveryRepository;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+import com.onion.emailnotificationservice.repository.UserRepository;
+
+/**
+ * Runs whole alert runs against the outbox on H2 with the SMTP server stalled. Email and webhook
+ * deliveries of a batch share its priority and the emails are queued first, so a run that claimed
+ * across channels or waited on every send of a chunk would leave the webhooks behind the emails.
+ * A channel that refuses every send must not keep a run claiming its deliveries over and over.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DeliveryOutboxService.class, NotificationProcessor.class, RecipientSource.class,
+        AlertRunChannelIsolationTest.Channels.class})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:alertrun;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "email.delivery.worker-id=worker-a",
+        "email.delivery.chunk-size=10"
+})
+class AlertRunChannelIsolationTest {
+
+    private static final int RECIPIENTS = 30;
+    private static final int WEBHOOK_URLS = 40;
+    // One send running and three queued
+    private static final int EMAIL_SLOTS = 4;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private DeliveryOutboxService deliveryOutboxService;
+
+    @Autowired
+    private NotificationProcessor notificationProcessor;
+
+    @Autowired
+    private StalledEmailChannel emailChannel;
+
+    @Autowired
+    private CountingWebhookChannel webhookChannel;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DeliveryBatchRepository deliveryBatchRepository;
+
+    private AlertSendTrigger alertSendTrigger;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < RECIPIENTS; i++) {
+            userRepository.save(User.builder()
+                    .fullName("User " + i)
+                    .email("user" + i + "@example.com")
+                    .notificationEnabled(true)
+                    .build());
+        }
+        notificationRepository.save(Notification.builder()
+                .asteroidName("(2024 AB)")
+                .closeApproachDate(LocalDate.now().plusDays(3))
+                .missDistanceKilometers(new BigDecimal("1200000"))
+                .estimatedDiameterAvgMeters(150)
+                .build());
+        alertSendTrigger = mock(AlertSendTrigger.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailChannel.shutdown();
+        webhookChannel.shutdown();
+        deliveryRepository.deleteAll();
+        deliveryBatchRepository.deleteAll();
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void webhooksAreDeliveredWhileSmtpIsStalledAndEmailsCatchUpOnceItRecovers() {
+        emailChannel.reset(Duration.ofSeconds(30));
+        EmailService emailService = emailService();
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync(emailService::sendAsteroidAlertEmail);
+
+        // Every webhook goes out although all email slots hang and the emails were queued first
+        await(() -> count(WebhookAlertChannel.NAME, DeliveryStatus.SENT) == WEBHOOK_URLS);
+        assertEquals(WEBHOOK_URLS, webhookChannel.posted.size());
+        assertFalse(run.isDone());
+        assertTrue(emailChannel.sentTo.isEmpty());
+        assertEquals(EMAIL_SLOTS, claimedEmails().size());
+
+        emailChannel.smtpRecovered.countDown();
+        run.join();
+
+        assertEquals(RECIPIENTS, count(AlertChannel.EMAIL, DeliveryStatus.SENT));
+        assertEquals(RECIPIENTS, new HashSet<>(emailChannel.sentTo).size());
+        assertEquals(RECIPIENTS, emailChannel.sentTo.size());
+        assertTrue(deliveryRepository.findAll().stream().allMatch(delivery -> delivery.getAttempts() == 1));
+        assertTrue(notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+    }
+
+    @Test
+    void timedOutSendsStayClaimedWithoutAnAttemptAndAreRecordedWhenTheyReturn() {
+        emailChannel.reset(Duration.ofMillis(200));
+        EmailService emailService = emailService();
+
+        // The run stops waiting for the hung emails after their timeout
+        emailService.sendAsteroidAlertEmail();
+
+        assertEquals(WEBHOOK_URLS, count(WebhookAlertChannel.NAME, DeliveryStatus.SENT));
+        List<Delivery> hung = claimedEmails();
+        assertEquals(EMAIL_SLOTS, hung.size());
+        hung.forEach(delivery -> {
+            assertEquals(DeliveryStatus.PENDING, delivery.getStatus());
+            assertEquals(0, delivery.getAttempts());
+        });
+        assertEquals(RECIPIENTS, count(AlertChannel.EMAIL, DeliveryStatus.PENDING));
+        // The rest of the emails get a run once the hung sends must have given up
+        verify(alertSendTrigger).runAt(any(Instant.class));
+        assertFalse(notificationRepository.findAll().stream().anyMatch(Notification::isEmailSent));
+
+        // The hung sends go through after all: recorded as sent, not retried
+        emailChannel.smtpRecovered.countDown();
+        await(() -> count(AlertChannel.EMAIL, DeliveryStatus.SENT) == EMAIL_SLOTS);
+        assertTrue(claimedEmails().isEmpty());
+
+        emailService.sendAsteroidAlertEmail();
+
+        assertEquals(RECIPIENTS, count(AlertChannel.EMAIL, DeliveryStatus.SENT));
+        assertEquals(RECIPIENTS, emailChannel.sentTo.size());
+        assertEquals(RECIPIENTS, new HashSet<>(emailChannel.sentTo).size());
+        assertTrue(deliveryRepository.findAll().stream().allMatch(delivery -> delivery.getAttempts() == 1));
+        assertTrue(notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+    }
+
+    @Test
+    void webhooksAreDeliveredWhenNoUserHasNotificationsEnabled() {
+        userRepository.findAll().forEach(user -> {
+            user.setNotificationEnabled(false);
+            userRepository.save(user);
+        });
+        emailChannel.reset(TIMEOUT);
+        EmailService emailService = emailService();
+
+        emailService.sendAsteroidAlertEmail();
+
+        assertEquals(WEBHOOK_URLS, count(WebhookAlertChannel.NAME, DeliveryStatus.SENT));
+        assertEquals(WEBHOOK_URLS, deliveryRepository.count());
+        assertTrue(notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+    }
+
+    @Test
+    void deliveriesAChannelKeepsGivingBackEndTheRunAndGetALaterOne() throws Exception {
+        emailChannel.reset(TIMEOUT);
+        emailChannel.smtpRecovered.countDown();
+        EmailService emailService = emailService();
+        // The webhook bulkhead has free slots, but its executor refuses every send
+        webhookChannel.shutdown();
+
+        CompletableFuture.runAsync(emailService::sendAsteroidAlertEmail).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        assertEquals(RECIPIENTS, count(AlertChannel.EMAIL, DeliveryStatus.SENT));
+        assertEquals(WEBHOOK_URLS, count(WebhookAlertChannel.NAME, DeliveryStatus.PENDING));
+        assertTrue(deliveryRepository.findAll().stream()
+                .filter(delivery -> WebhookAlertChannel.NAME.equals(delivery.getChannel()))
+                .allMatch(delivery -> delivery.getAttempts() == 0 && delivery.getClaimedBy() == null));
+        verify(alertSendTrigger).runAt(any(Instant.class));
+    }
+
+    private EmailService emailService() {
+        webhookChannel.reset();
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(emailChannel, webhookChannel));
+        return new EmailService(deliveryOutboxService, notificationProcessor, mock(EmailContentBuilder.class),
+                mock(EmailSenderService.class), mock(AlertLatencyMetrics.class), alertSendTrigger, dispatcher, -1);
+    }
+
+    private long count(String channel, DeliveryStatus status) {
+        return deliveryRepository.findAll().stream()
+                .filter(delivery -> channel.equals(delivery.getChannel()) && delivery.getStatus() == status)
+                .count();
+    }
+
+    private List<Delivery> claimedEmails() {
+        return deliveryRepository.findAll().stream()
+                .filter(delivery -> AlertChannel.EMAIL.equals(delivery.getChannel()) && delivery.getClaimedBy() != null)
+                .toList();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within " + TIMEOUT);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+
+    @TestConfiguration
+    static class Channels {
+
+        @Bean
+        StalledEmailChannel stalledEmailChannel() {
+            return new StalledEmailChannel();
+        }
+
+        @Bean
+        CountingWebhookChannel countingWebhookChannel() {
+            return new CountingWebhookChannel();
+        }
+    }
+
+    // Sends hang, as against an unresponsive SMTP server, until smtpRecovered is counted down
+    static class StalledEmailChannel implements AlertChannel {
+
+        private final List<String> sentTo = Collections.synchronizedList(new ArrayList<>());
+        private CountDownLatch smtpRecovered;
+        private ThreadPoolTaskExecutor executor;
+        private ChannelBulkhead bulkhead;
+
+        void reset(Duration timeout) {
+            sentTo.clear();
+            smtpRecovered = new CountDownLatch(1);
+            executor = executor("mail-send-", 1, EMAIL_SLOTS);
+            bulkhead = new ChannelBulkhead(executor, EMAIL_SLOTS, timeout);
+        }
+
+        void shutdown() {
+            smtpRecovered.countDown();
+            executor.shutdown();
+        }
+
+        @Override
+        public String getName() {
+            return EMAIL;
+        }
+
+        @Override
+        public ChannelBulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        @Override
+        public Set<Long> send(List<Delivery> deliveries, AlertContent content) {
+            try {
+                smtpRecovered.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            deliveries.forEach(delivery -> sentTo.add(delivery.getEmail()));
+            return Set.of();
+        }
+    }
+
+    static class CountingWebhookChannel implements AlertChannel {
+
+        private final List<String> posted = Collections.synchronizedList(new ArrayList<>());
+        private ThreadPoolTaskExecutor executor;
+        private ChannelBulkhead bulkhead;
+
+        void reset() {
+            posted.clear();
+            executor = executor("webhook-send-", 4, WEBHOOK_URLS + 4);
+            bulkhead = new ChannelBulkhead(executor, 4 + WEBHOOK_URLS, Duration.ofSeconds(10));
+        }
+
+        void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public String getName() {
+            return WebhookAlertChannel.NAME;
+        }
+
+        @Override
+        public ChannelBulkhead getBulkhead() {
+            return bulkhead;
+        }
+
+        @Override
+        public List<String> getDestinations() {
+            return IntStream.range(0, WEBHOOK_URLS).mapToObj(i -> "https://hooks.example.com/" + i).toList();
+        }
+
+        @Override
+        public Set<Long> send(List<Delivery> deliveries, AlertContent content) {
+            deliveries.forEach(delivery -> posted.add(delivery.getDestination()));
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Drives the trigger on a hand-moved clock against a mocked scheduler that records every planned
+ * run instead of running it.
+ */
+class AlertSendTriggerTest {
+
+    private static final long DEBOUNCE_MS = 2000;
+    private static final long MAX_DELAY_MS = 10000;
+    private static final Instant START = Instant.parse("2026-10-19T09:00:00Z");
+
+    private MutableClock clock;
+    private EmailService emailService;
+    private final List<ScheduledRun> scheduled = new ArrayList<>();
+    private AlertSendTrigger trigger;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        clock = new MutableClock(START);
+        emailService = mock(EmailService.class);
+        ObjectProvider<EmailService> emailServiceProvider = mock(ObjectProvider.class);
+        when(emailServiceProvider.getObject()).thenReturn(emailService);
+
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            ScheduledRun run = new ScheduledRun(invocation.getArgument(0), invocation.getArgument(1), mock(ScheduledFuture.class));
+            scheduled.add(run);
+            return run.future();
+        });
+        trigger = new AlertSendTrigger(taskScheduler, emailServiceProvider, DEBOUNCE_MS, MAX_DELAY_MS, clock);
+    }
+
+    @Test
+    void storedNotificationsStartARunOnceTheDebounceWindowPasses() {
+        trigger.notificationsStored();
+
+        assertEquals(List.of(START.plusMillis(DEBOUNCE_MS)), scheduledInstants());
+
+        scheduled.get(0).task().run();
+        verify(emailService).sendAsteroidAlertEmail();
+    }
+
+    @Test
+    void eachSignalRestartsTheDebounceWindowAndCancelsThePlannedRun() {
+        trigger.notificationsStored();
+        clock.advance(Duration.ofMillis(500));
+        trigger.notificationsStored();
+
+        assertEquals(List.of(START.plusMillis(DEBOUNCE_MS), START.plusMillis(500 + DEBOUNCE_MS)), scheduledInstants());
+        verify(scheduled.get(0).future()).cancel(false);
+
+        // A replaced run that fired before it could be cancelled does nothing
+        scheduled.get(0).task().run();
+        verify(emailService, never()).sendAsteroidAlertEmail();
+        scheduled.get(1).task().run();
+        verify(emailService).sendAsteroidAlertEmail();
+    }
+
+    @Test
+    void aSteadyStreamOfSignalsIsCappedAtTheMaxDelayAfterTheFirst() {
+        for (int i = 0; i < 8; i++) {
+            trigger.notificationsStored();
+            clock.advance(Duration.ofMillis(1500));
+        }
+
+        // Signals at 0, 1.5 s, ... 10.5 s: the debounced time passes the 10 s cap from the 7th one on
+        List<Instant> instants = scheduledInstants();
+        assertEquals(START.plusMillis(4500 + DEBOUNCE_MS), instants.get(3));
+        assertEquals(START.plusMillis(MAX_DELAY_MS), instants.get(6));
+        assertEquals(START.plusMillis(MAX_DELAY_MS), instants.get(7));
+    }
+
+    @Test
+    void aNewBurstAfterARunStartsItsOwnMaxDelayWindow() {
+        trigger.notificationsStored();
+        clock.advance(Duration.ofMillis(DEBOUNCE_MS));
+        scheduled.get(0).task().run();
+
+        clock.advance(Duration.ofMillis(MAX_DELAY_MS));
+        trigger.notificationsStored();
+
+        assertEquals(clock.instant().plusMillis(DEBOUNCE_MS), scheduled.get(1).at());
+    }
+
+    @Test
+    void retryRunsAreCoalescedToTheEarliestRequestedTime() {
+        Instant inTen = START.plusSeconds(10);
+
+        trigger.runAt(inTen);
+        trigger.runAt(START.plusSeconds(20));
+        trigger.runAt(inTen);
+
+        assertEquals(List.of(inTen), scheduledInstants());
+
+        trigger.runAt(START.plusSeconds(5));
+
+        assertEquals(List.of(inTen, START.plusSeconds(5)), scheduledInstants());
+        verify(scheduled.get(0).future()).cancel(false);
+    }
+
+    @Test
+    void aRetryRunThatHasFiredNoLongerHoldsBackLaterRequests() {
+        trigger.runAt(START.plusSeconds(10));
+        ScheduledRun first = scheduled.get(0);
+        first.task().run();
+        when(first.future().isDone()).thenReturn(true);
+
+        trigger.runAt(START.plusSeconds(30));
+
+        verify(emailService).sendAsteroidAlertEmail();
+        assertEquals(List.of(START.plusSeconds(10), START.plusSeconds(30)), scheduledInstants());
+        verify(first.future(), never()).cancel(false);
+    }
+
+    @Test
+    void retryRunsAndDebouncedRunsArePlannedIndependently() {
+        trigger.runAt(START.plusSeconds(30));
+        trigger.notificationsStored();
+
+        assertEquals(List.of(START.plusSeconds(30), START.plusMillis(DEBOUNCE_MS)), scheduledInstants());
+        verify(scheduled.get(0).future(), never()).cancel(false);
+    }
+
+    private List<Instant> scheduledInstants() {
+        return scheduled.stream().map(ScheduledRun::at).toList();
+    }
+
+    private record ScheduledRun(Runnable task, Instant at, ScheduledFuture<?> future) {
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onion.emailnotificationservice.entity.Delivery;
+import com.onion.emailnotificationservice.entity.DeliveryBatch;
+import com.onion.emailnotificationservice.entity.DeliveryStatus;
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.entity.User;
+import com.onion.emailnotificationservice.repository.DeliveryBatchRepository;
+import com.onion.emailnotificationservice.repository.DeliveryRepository;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+import com.onion.emailnotificationservice.repository.UserRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Runs the delivery outbox against H2 with every call in its own transaction, the way separate
+ * service instances would use it.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DeliveryOutboxService.class, NotificationProcessor.class, RecipientSource.class})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "email.delivery.worker-id=worker-a",
+        "email.delivery.chunk-size=2",
+        "email.delivery.max-attempts=2",
+        "email.delivery.retry-backoff-ms=0"
+})
+class DeliveryOutboxServiceTest {
+
+    private static final int RECIPIENTS = 5;
+
+    @Autowired
+    private DeliveryOutboxService workerA;
+
+    @Autowired
+    private NotificationProcessor notificationProcessor;
+
+    @Autowired
+    private RecipientSource recipientSource;
+
+    @Autowired
+    private ObjectProvider<AlertChannel> alertChannels;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DeliveryBatchRepository deliveryBatchRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            userRepository.save(User.builder()
+                    .fullName("User " + i)
+                    .email("user" + i + "@example.com")
+                    .notificationEnabled(true)
+                    .build());
+        }
+        notificationRepository.save(Notification.builder()
+                .asteroidName("(2024 AB)")
+                .closeApproachDate(LocalDate.now().plusDays(3))
+                .missDistanceKilometers(new BigDecimal("1200000"))
+                .estimatedDiameterAvgMeters(150)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        deliveryRepository.deleteAll();
+        deliveryBatchRepository.deleteAll();
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void queuesEachNotificationOnlyOnce() {
+        assertNotNull(workerA.enqueueUnsentNotifications());
+        assertNull(workerA.enqueueUnsentNotifications());
+
+        assertEquals(RECIPIENTS, deliveryRepository.count());
+        assertEquals(1, deliveryBatchRepository.count());
+    }
+
+    @Test
+    void queuesOneDeliveryPerEnabledRecipient() {
+        userRepository.save(User.builder()
+                .fullName("Opted out")
+                .email("opted-out@example.com")
+                .notificationEnabled(false)
+                .build());
+
+        DeliveryBatch batch = workerA.enqueueUnsentNotifications();
+
+        assertEquals(RECIPIENTS, batch.getRecipientCount());
+        assertEquals(1, batch.getNotificationCount());
+        List<Delivery> deliveries = deliveryRepository.findAll();
+        assertEquals(RECIPIENTS, deliveries.size());
+        deliveries.forEach(delivery -> {
+            assertEquals(batch.getId(), delivery.getBatchId());
+            assertEquals(DeliveryStatus.PENDING, delivery.getStatus());
+            assertEquals(0, delivery.getAttempts());
+            assertTrue(delivery.getEmail().startsWith("user"), delivery.getEmail());
+            assertNotNull(delivery.getFullName());
+        });
+        assertTrue(notificationRepository.findAll().stream().allMatch(n -> batch.getId().equals(n.getDeliveryBatchId())));
+    }
+
+    @Test
+    void workersClaimDisjointChunks() {
+        workerA.enqueueUnsentNotifications();
+        DeliveryOutboxService workerB = worker("worker-b");
+
+        Set<Long> claimed = new HashSet<>();
+        int claims = 0;
+        List<Delivery> chunk;
+        do {
+            DeliveryOutboxService worker = claims++ % 2 == 0 ? workerA : workerB;
+            chunk = inTransaction(() -> claimEmails(worker));
+            chunk.forEach(delivery -> assertTrue(claimed.add(delivery.getId()), "claimed twice: " + delivery.getId()));
+        } while (!chunk.isEmpty());
+
+        assertEquals(RECIPIENTS, claimed.size());
+    }
+
+    @Test
+    void concurrentWorkersNeverClaimTheSameDelivery() throws Exception {
+        workerA.enqueueUnsentNotifications();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                DeliveryOutboxService worker = worker("worker-" + i);
+                results.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    List<Delivery> chunk;
+                    while (!(chunk = inTransaction(() -> claimEmails(worker))).isEmpty()) {
+                        chunk.forEach(delivery -> ids.add(delivery.getId()));
+                    }
+                    return ids;
+                }));
+            }
+
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                all.addAll(result.get());
+            }
+            assertEquals(RECIPIENTS, all.size());
+            assertEquals(RECIPIENTS, new HashSet<>(all).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedAndStaleResultsAreIgnored() {
+        workerA.enqueueUnsentNotifications();
+        List<Delivery> claimedByA = claimEmails(workerA);
+        assertEquals(2, claimedByA.size());
+
+        // Worker A stalls past its lease
+        expireLeases();
+
+        DeliveryOutboxService workerB = worker("worker-b");
+        List<Delivery> claimedByB = inTransaction(() -> claimEmails(workerB));
+        assertEquals(ids(claimedByA), ids(claimedByB));
+
+        workerA.recordResults(claimedByA, List.of());
+        claimedByA.forEach(delivery -> {
+            Delivery stored = deliveryRepository.findById(delivery.getId()).orElseThrow();
+            assertEquals(DeliveryStatus.PENDING, stored.getStatus());
+            assertEquals("worker-b", stored.getClaimedBy());
+        });
+
+        inTransaction(() -> {
+            workerB.recordResults(claimedByB, List.of());
+            return null;
+        });
+        claimedByB.forEach(delivery -> {
+            Delivery stored = deliveryRepository.findById(delivery.getId()).orElseThrow();
+            assertEquals(DeliveryStatus.SENT, stored.getStatus());
+            assertEquals(1, stored.getAttempts());
+            assertNull(stored.getClaimedBy());
+        });
+    }
+
+    @Test
+    void failedDeliveryIsRetriedUntilMaxAttempts() {
+        workerA.enqueueUnsentNotifications();
+        List<Delivery> first = claimEmails(workerA);
+        workerA.recordResults(List.of(), first);
+
+        Delivery retried = deliveryRepository.findById(first.get(0).getId()).orElseThrow();
+        assertEquals(DeliveryStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+
+        List<Delivery> second = claimEmails(workerA);
+        assertEquals(ids(first), ids(second));
+        workerA.recordResults(List.of(), second);
+
+        Delivery failed = deliveryRepository.findById(first.get(0).getId()).orElseThrow();
+        assertEquals(DeliveryStatus.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+    }
+
+    @Test
+    void onlyFailedDeliveriesAreRetriedWithExponentialBackoff() {
+        // One minute, doubling per attempt, capped at 90 seconds
+        DeliveryOutboxService worker = worker("worker-backoff", 5, 60000, 90000);
+        inTransaction(worker::enqueueUnsentNotifications);
+        List<Delivery> chunk = inTransaction(() -> claimEmails(worker));
+        Delivery sent = chunk.get(0);
+        Delivery failed = chunk.get(1);
+
+        LocalDateTime before = LocalDateTime.now();
+        inTransaction(() -> {
+            worker.recordResults(List.of(sent), List.of(failed));
+            return null;
+        });
+        LocalDateTime after = LocalDateTime.now();
+
+        assertEquals(DeliveryStatus.SENT, deliveryRepository.findById(sent.getId()).orElseThrow().getStatus());
+        Delivery retried = deliveryRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(DeliveryStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertNull(retried.getClaimedBy());
+        assertBetween(before.plusSeconds(60), after.plusSeconds(60), retried.getNextAttemptAt());
+
+        // Not due yet: the rest of the batch is claimed, the failed delivery is not
+        Set<Long> remaining = new HashSet<>();
+        while (!(chunk = inTransaction(() -> claimEmails(worker))).isEmpty()) {
+            remaining.addAll(ids(chunk));
+        }
+        assertEquals(RECIPIENTS - 2, remaining.size());
+        assertTrue(!remaining.contains(failed.getId()) && !remaining.contains(sent.getId()));
+
+        makeDue(failed.getId());
+        List<Delivery> secondAttempt = inTransaction(() -> claimEmails(worker));
+        assertEquals(Set.of(failed.getId()), ids(secondAttempt));
+        before = LocalDateTime.now();
+        inTransaction(() -> {
+            worker.recordResults(List.of(), secondAttempt);
+            return null;
+        });
+        after = LocalDateTime.now();
+
+        // Two minutes would be the doubled backoff; the cap applies
+        retried = deliveryRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(2, retried.getAttempts());
+        assertBetween(before.plusSeconds(90), after.plusSeconds(90), retried.getNextAttemptAt());
+    }
+
+    @Test
+    void batchWithPermanentlyFailedDeliveriesIsCompleted() {
+        workerA.enqueueUnsentNotifications();
+
+        List<Delivery> chunk;
+        while (!(chunk = claimEmails(workerA)).isEmpty()) {
+            workerA.recordResults(List.of(), chunk);
+        }
+
+        assertEquals(RECIPIENTS, deliveryRepository.findAll().stream()
+                .filter(delivery -> delivery.getStatus() == DeliveryStatus.FAILED).count());
+        assertEquals(1, workerA.completeFinishedBatches());
+        assertTrue(notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+        assertEquals(0, workerA.completeFinishedBatches());
+    }
+
+    @Test
+    void batchCompletesOnceNoDeliveryIsPending() {
+        workerA.enqueueUnsentNotifications();
+
+        List<Delivery> chunk = claimEmails(workerA);
+        workerA.recordResults(chunk, List.of());
+        assertEquals(0, workerA.completeFinishedBatches());
+        assertTrue(notificationRepository.findAll().stream().noneMatch(Notification::isEmailSent));
+
+        while (!(chunk = claimEmails(workerA)).isEmpty()) {
+            workerA.recordResults(chunk, List.of());
+        }
+        assertEquals(1, workerA.completeFinishedBatches());
+        assertTrue(notificationRepository.findAll().stream().allMatch(Notification::isEmailSent));
+        assertNotNull(deliveryBatchRepository.findAll().get(0).getCompletedAt());
+    }
+
+    @Test
+    void urgentBatchIsClaimedAheadOfRoutineDeliveries() {
+        Long routineBatchId = workerA.enqueueUnsentNotifications().getId();
+        List<Delivery> routine = claimEmails(workerA);
+        workerA.recordResults(routine, List.of());
+
+        // A near miss tomorrow arrives while the routine batch is being sent
+        notificationRepository.save(Notification.builder()
+                .asteroidName("(2024 XY)")
+                .closeApproachDate(LocalDate.now().plusDays(1))
+                .missDistanceKilometers(new BigDecimal("300000"))
+                .estimatedDiameterAvgMeters(40)
+                .build());
+        Long urgentBatchId = workerA.enqueueUnsentNotifications().getId();
+
+        List<Delivery> next = new ArrayList<>();
+        List<Delivery> chunk;
+        while (!(chunk = claimEmails(workerA)).isEmpty()) {
+            next.addAll(chunk);
+            workerA.recordResults(chunk, List.of());
+        }
+        assertEquals(2 * RECIPIENTS - routine.size(), next.size());
+        assertTrue(next.subList(0, RECIPIENTS).stream().allMatch(delivery -> urgentBatchId.equals(delivery.getBatchId())));
+        assertTrue(next.subList(RECIPIENTS, next.size()).stream().allMatch(delivery -> routineBatchId.equals(delivery.getBatchId())));
+    }
+
+    @Test
+    void eachChannelIsClaimedOnItsOwnAndOnlyAsFarAsItHasRoom() {
+        Long batchId = workerA.enqueueUnsentNotifications().getId();
+        // Webhook deliveries of a more urgent batch; claiming emails must neither return nor wait behind them
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            deliveryRepository.save(Delivery.builder()
+                    .batchId(batchId)
+                    .channel(WebhookAlertChannel.NAME)
+                    .destination("https://hooks.example.com/" + i)
+                    .closeApproachDate(LocalDate.now())
+                    .status(DeliveryStatus.PENDING)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+        }
+
+        List<Delivery> emails = claimEmails(workerA);
+        List<Delivery> webhooks = workerA.claimDueDeliveries(WebhookAlertChannel.NAME, 1);
+
+        assertEquals(2, emails.size());
+        assertTrue(emails.stream().allMatch(delivery -> AlertChannel.EMAIL.equals(delivery.getChannel())));
+        assertEquals(1, webhooks.size());
+        assertEquals(WebhookAlertChannel.NAME, webhooks.get(0).getChannel());
+        assertTrue(workerA.claimDueDeliveries(WebhookAlertChannel.NAME, 0).isEmpty());
+        assertEquals(2, workerA.claimDueDeliveries(WebhookAlertChannel.NAME, 10).size());
+    }
+
+    // A second instance sharing the database; it is not a Spring proxy, so callers open the transaction
+    private DeliveryOutboxService worker(String workerId) {
+        return worker(workerId, 2, 0, 0);
+    }
+
+    private DeliveryOutboxService worker(String workerId, int maxAttempts, long retryBackoffMs, long maxRetryBackoffMs) {
+        return new DeliveryOutboxService(notificationProcessor, recipientSource, alertChannels, userRepository, deliveryRepository,
+                deliveryBatchRepository, entityManager, 2, maxAttempts, retryBackoffMs, maxRetryBackoffMs, 300000, workerId);
+    }
+
+    private static List<Delivery> claimEmails(DeliveryOutboxService worker) {
+        return worker.claimDueDeliveries(AlertChannel.EMAIL, Integer.MAX_VALUE);
+    }
+
+    private <T> T inTransaction(Callable<T> action) {
+        return transactionTemplate.execute(status -> {
+            try {
+                return action.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void expireLeases() {
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createQuery("UPDATE Delivery d SET d.leaseUntil = :past WHERE d.leaseUntil IS NOT NULL")
+                .setParameter("past", LocalDateTime.now().minusMinutes(1))
+                .executeUpdate());
+    }
+
+    private void makeDue(Long deliveryId) {
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createQuery("UPDATE Delivery d SET d.nextAttemptAt = :past WHERE d.id = :id")
+                .setParameter("past", LocalDateTime.now().minusSeconds(1))
+                .setParameter("id", deliveryId)
+                .executeUpdate());
+    }
+
+    private static void assertBetween(LocalDateTime earliest, LocalDateTime latest, LocalDateTime actual) {
+        assertTrue(!actual.isBefore(earliest.truncatedTo(ChronoUnit.MILLIS)) && !actual.isAfter(latest),
+                actual + " not within " + earliest + ".." + latest);
+    }
+
+    private static Set<Long> ids(List<Delivery> deliveries) {
+        Set<Long> ids = new HashSet<>();
+        deliveries.forEach(delivery -> ids.add(delivery.getId()));
+        return ids;
+    }
+}
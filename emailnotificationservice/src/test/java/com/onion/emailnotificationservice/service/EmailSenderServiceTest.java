@@ -0,0 +1,87 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Runs grouped sends against a transport pool that fails each transaction as the test queues it
+ * and records the envelope of every attempt.
+ */
+class EmailSenderServiceTest {
+
+    private static final byte[] BODY = "<p>Alert</p>".getBytes(StandardCharsets.UTF_8);
+
+    private final List<MessagingException> failures = new ArrayList<>();
+    private final List<List<String>> envelopes = new ArrayList<>();
+    private EmailSenderService service;
+
+    @BeforeEach
+    void setUp() throws MessagingException {
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        SmtpTransportPool transportPool = mock(SmtpTransportPool.class);
+        doAnswer(invocation -> {
+            Address[] recipients = invocation.getArgument(1);
+            envelopes.add(Arrays.stream(recipients).map(Address::toString).toList());
+            if (!failures.isEmpty()) {
+                throw failures.remove(0);
+            }
+            return null;
+        }).when(transportPool).send(any(MimeMessage.class), any(Address[].class));
+
+        service = new EmailSenderService(mailSender, transportPool, mock(SmtpRateGovernor.class), Runnable::run);
+        ReflectionTestUtils.setField(service, "fromEmail", "alerts@example.com");
+    }
+
+    @Test
+    void rejectedRecipientsAreReportedAndTheRestSentAgain() throws AddressException {
+        failures.add(new SendFailedException("550 5.1.1 User unknown", null, null,
+                addresses("ada@example.com"), addresses("bob@example.com")));
+
+        Set<String> notSent = service.sendGroupedHtmlEmail(List.of("ada@example.com", "bob@example.com"), "Alert", BODY);
+
+        assertEquals(Set.of("bob@example.com"), notSent);
+        assertEquals(List.of(List.of("ada@example.com", "bob@example.com"), List.of("ada@example.com")), envelopes);
+    }
+
+    @Test
+    void refusalOfAnAddressNotInTheGroupFailsTheGroupInsteadOfResending() throws AddressException {
+        failures.add(new SendFailedException("550 5.1.1 User unknown", null, null,
+                addresses("ada@example.com", "bob@example.com"), addresses("eve@example.com")));
+
+        Set<String> notSent = service.sendGroupedHtmlEmail(List.of("ada@example.com", "bob@example.com"), "Alert", BODY);
+
+        assertEquals(Set.of("ada@example.com", "bob@example.com"), notSent);
+        assertEquals(1, envelopes.size());
+    }
+
+    private static Address[] addresses(String... emails) throws AddressException {
+        Address[] addresses = new Address[emails.length];
+        for (int i = 0; i < emails.length; i++) {
+            addresses[i] = new InternetAddress(emails[i]);
+        }
+        return addresses;
+    }
+}
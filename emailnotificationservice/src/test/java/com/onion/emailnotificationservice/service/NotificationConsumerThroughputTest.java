@@ -0,0 +1,188 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import com.onion.NeoWs.event.AsteroidCollisionEvent;
+import com.onion.emailnotificationservice.entity.Notification;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the same backlog from a 4-partition topic with 1, 2 and 4 listener threads. Storing a
+ * notification is simulated as 2 ms of work, so a single consumer is bound by per-record
+ * processing and more threads should drain proportionally faster, without any asteroid's
+ * events being handled out of order or by two threads.
+ *
+ * Only the ordering and thread assignment are asserted; the drain times are logged, since
+ * wall-clock speedups depend on the machine. The harness profile measures end-to-end throughput.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.datasource.url=jdbc:h2:mem:throughput;NON_KEYWORDS=USER",
+        "management.health.mail.enabled=false",
+        "notification.kafka.batch-enabled=true",
+        "notification.kafka.concurrency=1"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = NotificationConsumerThroughputTest.PARTITIONS, topics = "asteroid-alert")
+class NotificationConsumerThroughputTest {
+
+    static final int PARTITIONS = 4;
+    private static final int ASTEROIDS = 120;
+    private static final int UPDATES_PER_ASTEROID = 10;
+    private static final int EVENTS_PER_RUN = ASTEROIDS * UPDATES_PER_ASTEROID;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @MockBean
+    private NotificationIngestionService notificationIngestionService;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private NasaApodService nasaApodService;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    private final AtomicInteger consumed = new AtomicInteger();
+    // asteroid -> miss distances in the order they were stored, and the threads that stored them
+    private final Map<String, List<BigDecimal>> storedOrder = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> storingThreads = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void simulateStorage() {
+        doAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            String thread = Thread.currentThread().getName();
+            for (Notification notification : notifications) {
+                storedOrder.computeIfAbsent(notification.getAsteroidName(), name -> new ArrayList<>())
+                        .add(notification.getMissDistanceKilometers());
+                storingThreads.computeIfAbsent(notification.getAsteroidName(), name -> ConcurrentHashMap.newKeySet())
+                        .add(thread);
+            }
+            TimeUnit.MILLISECONDS.sleep(2L * notifications.size());
+            consumed.addAndGet(notifications.size());
+            return notifications.size();
+        }).when(notificationIngestionService).upsert(anyList());
+    }
+
+    @Test
+    void parallelConsumptionKeepsEachAsteroidOnOneThreadInOrder() throws Exception {
+        ConcurrentMessageListenerContainer<?, ?> container =
+                (ConcurrentMessageListenerContainer<?, ?>) registry.getListenerContainer("notification-batch");
+
+        long single = drainBacklog(container, 1, "single");
+        long two = drainBacklog(container, 2, "two");
+        long four = drainBacklog(container, PARTITIONS, "four");
+
+        log.info("Drained {} events/run: 1 thread {} ms ({} events/s), 2 threads {} ms ({} events/s), {} threads {} ms ({} events/s)",
+                EVENTS_PER_RUN, single, rate(single), two, rate(two), PARTITIONS, four, rate(four));
+    }
+
+    /**
+     * Publishes a backlog while the listener threads are paused with their partitions assigned, then
+     * times how long they take to consume it and checks per-asteroid ordering. Assigning first keeps
+     * a thread that joins the group late from finding the backlog already drained.
+     */
+    private long drainBacklog(ConcurrentMessageListenerContainer<?, ?> container, int threads, String run) throws Exception {
+        container.stop();
+        consumed.set(0);
+        storedOrder.clear();
+        storingThreads.clear();
+
+        container.setConcurrency(threads);
+        container.start();
+        ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+        container.pause();
+        long pauseDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!container.isContainerPaused() && System.nanoTime() < pauseDeadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(container.isContainerPaused()).isTrue();
+        publishBacklog(run);
+
+        long start = System.nanoTime();
+        container.resume();
+        long deadline = start + TimeUnit.SECONDS.toNanos(60);
+        while (consumed.get() < EVENTS_PER_RUN && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(consumed.get()).isEqualTo(EVENTS_PER_RUN);
+        assertThat(storedOrder).hasSize(ASTEROIDS);
+        storedOrder.forEach((asteroid, distances) -> assertThat(distances).as(asteroid).isSorted());
+        storingThreads.forEach((asteroid, names) -> assertThat(names).as(asteroid).hasSize(1));
+        Set<String> usedThreads = new HashSet<>();
+        storingThreads.values().forEach(usedThreads::addAll);
+        assertThat(usedThreads).hasSize(threads);
+        return elapsedMs;
+    }
+
+    // Interleaves updates across asteroids; each asteroid's miss distance grows with every update
+    private void publishBacklog(String run) {
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(embeddedKafka);
+        DefaultKafkaProducerFactory<String, AsteroidCollisionEvent> producerFactory =
+                new DefaultKafkaProducerFactory<>(producerProps, new StringSerializer(), new JsonSerializer<>());
+        try {
+            KafkaTemplate<String, AsteroidCollisionEvent> template = new KafkaTemplate<>(producerFactory);
+            for (int update = 0; update < UPDATES_PER_ASTEROID; update++) {
+                for (int asteroid = 0; asteroid < ASTEROIDS; asteroid++) {
+                    String name = run + "-" + asteroid;
+                    template.send(new ProducerRecord<>("asteroid-alert", name, AsteroidCollisionEvent.builder()
+                            .asteroidName(name)
+                            .closeApproachDate("2026-10-21")
+                            .missDistanceKilometers(String.valueOf(1_000_000 + update))
+                            .estimatedDiameterAverageMeters(250.0)
+                            .build()));
+                }
+            }
+            template.flush();
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private static long rate(long elapsedMs) {
+        return EVENTS_PER_RUN * 1000L / Math.max(1, elapsedMs);
+    }
+}
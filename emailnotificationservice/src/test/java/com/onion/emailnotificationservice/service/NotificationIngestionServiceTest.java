@@ -0,0 +1,184 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onion.emailnotificationservice.entity.Notification;
+import com.onion.emailnotificationservice.repository.NotificationRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Upserts against H2 with every call in its own transaction, as the Kafka listeners do.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:ingestion;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1")
+class NotificationIngestionServiceTest {
+
+    private static final LocalDate APPROACH = LocalDate.now().plusDays(3);
+    private static final int DEDUP_CACHE_SIZE = 2;
+
+    @SpyBean
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AlertSendTrigger alertSendTrigger;
+    private NotificationIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        alertSendTrigger = mock(AlertSendTrigger.class);
+        ingestionService = new NotificationIngestionService(notificationRepository,
+                new NotificationDedupFilter(DEDUP_CACHE_SIZE), new AlertLatencyMetrics(new SimpleMeterRegistry()),
+                alertSendTrigger, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationRepository.deleteAll();
+    }
+
+    @Test
+    void insertsNewAsteroidsAndSignalsTheTrigger() {
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1200000"), event("(2024 CD)", "800000")));
+
+        assertEquals(2, stored);
+        List<Notification> rows = notificationRepository.findAll();
+        assertEquals(2, rows.size());
+        rows.forEach(row -> assertNotNull(row.getPersistedAt()));
+        verify(alertSendTrigger).notificationsStored();
+    }
+
+    @Test
+    void redeliveryUpdatesMeasurementsAndKeepsEmailSent() {
+        ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+        Notification first = notificationRepository.findAll().get(0);
+        first.setEmailSent(true);
+        notificationRepository.save(first);
+
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1100000")));
+
+        assertEquals(1, stored);
+        List<Notification> rows = notificationRepository.findAll();
+        assertEquals(1, rows.size());
+        Notification updated = rows.get(0);
+        assertEquals(first.getId(), updated.getId());
+        assertTrue(updated.isEmailSent());
+        assertEquals(0, new BigDecimal("1100000").compareTo(updated.getMissDistanceKilometers()));
+        assertEquals(first.getPersistedAt(), updated.getPersistedAt());
+        // Only the first upsert stored anything unsent
+        verify(alertSendTrigger, times(1)).notificationsStored();
+    }
+
+    @Test
+    void repeatsInsideOneBatchAreStoredOnceWithTheLastMeasurement() {
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1200000"), event("(2024 AB)", "1150000")));
+
+        assertEquals(1, stored);
+        assertEquals(0, new BigDecimal("1150000").compareTo(
+                notificationRepository.findAll().get(0).getMissDistanceKilometers()));
+    }
+
+    @Test
+    void exactRepeatsWithinTheDedupWindowNeverReachTheDatabase() {
+        ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+
+        int repeated = ingestionService.upsert(List.of(event("(2024 AB)", "1200000.00")));
+        int changed = ingestionService.upsert(List.of(event("(2024 AB)", "1190000")));
+
+        assertEquals(0, repeated);
+        assertEquals(1, changed);
+        // The first upsert and the changed one looked the key up; the exact repeat did not
+        verify(notificationRepository, times(2)).findByAsteroidNameInAndCloseApproachDateIn(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void keysEvictedFromTheDedupWindowAreUpsertedAgain() {
+        ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+        ingestionService.upsert(List.of(event("(2024 CD)", "800000"), event("(2024 EF)", "900000")));
+
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+
+        assertEquals(1, stored);
+        assertEquals(3, notificationRepository.count());
+    }
+
+    @Test
+    void rolledBackBatchesAreNotRememberedByTheDedupWindow() {
+        Notification invalid = event("(2024 AB)", "1200000");
+        invalid.setAsteroidName("x".repeat(1000));
+        try {
+            ingestionService.upsert(List.of(invalid));
+        } catch (RuntimeException expected) {
+            // Column too long for H2's default VARCHAR(255)
+        }
+
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+
+        assertEquals(1, stored);
+        verify(alertSendTrigger, times(1)).notificationsStored();
+    }
+
+    @Test
+    void concurrentInsertOfTheSameKeyUpdatesTheWinningRow() {
+        ingestionService.upsert(List.of(event("(2024 AB)", "1200000")));
+        Notification winner = notificationRepository.findAll().get(0);
+        winner.setEmailSent(true);
+        notificationRepository.save(winner);
+
+        // The lookup misses the row, as if another consumer committed it right after: the insert
+        // violates uk_notification_asteroid_approach and the batch is upserted again
+        Answer<?> realRepository = mockingDetails(notificationRepository).getMockCreationSettings().getDefaultAnswer();
+        doReturn(List.of()).doAnswer(realRepository)
+                .when(notificationRepository).findByAsteroidNameInAndCloseApproachDateIn(anyCollection(), anyCollection());
+        int stored = ingestionService.upsert(List.of(event("(2024 AB)", "1100000"), event("(2024 CD)", "800000")));
+
+        assertEquals(2, stored);
+        assertEquals(2, notificationRepository.count());
+        Notification updated = notificationRepository.findById(winner.getId()).orElseThrow();
+        assertTrue(updated.isEmailSent());
+        assertEquals(0, new BigDecimal("1100000").compareTo(updated.getMissDistanceKilometers()));
+        verify(notificationRepository, times(3)).findByAsteroidNameInAndCloseApproachDateIn(anyCollection(), anyCollection());
+    }
+
+    private static Notification event(String asteroidName, String missDistanceKilometers) {
+        return Notification.builder()
+                .asteroidName(asteroidName)
+                .closeApproachDate(APPROACH)
+                .missDistanceKilometers(new BigDecimal(missDistanceKilometers))
+                .estimatedDiameterAvgMeters(150)
+                .consumedAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onion.emailnotificationservice.dto.Recipient;
+import com.onion.emailnotificationservice.entity.User;
+import com.onion.emailnotificationservice.repository.UserRepository;
+
+/**
+ * Runs the recipient index against H2 with every repository call in its own transaction, so user
+ * changes reach the index through {@link RecipientIndexListener} as they do in the service.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(RecipientSource.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recipients;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "email.recipients.page-size=2"
+})
+class RecipientSourceTest {
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private RecipientSource recipientSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User ada;
+    private User grace;
+    private User alan;
+
+    @BeforeEach
+    void setUp() {
+        ada = userRepository.save(user("Ada", true));
+        grace = userRepository.save(user("Grace", true));
+        alan = userRepository.save(user("Alan", false));
+        recipientSource.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset(userRepository);
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildLoadsEnabledUsersInIdOrderAndPages() {
+        List<Integer> pageSizes = new ArrayList<>();
+        List<Recipient> recipients = new ArrayList<>();
+        userRepository.save(user("Edsger", true));
+        recipientSource.rebuild();
+
+        long total = recipientSource.forEachPage(page -> {
+            pageSizes.add(page.size());
+            recipients.addAll(page);
+        });
+
+        assertEquals(3, total);
+        assertEquals(List.of(2, 1), pageSizes);
+        assertEquals(List.of("Ada", "Grace", "Edsger"), recipients.stream().map(Recipient::getFullName).toList());
+        assertEquals("ada@example.com", recipients.get(0).getEmail());
+    }
+
+    @Test
+    void rebuildPicksUpChangesMadeOutsideThisInstance() {
+        // Written past the entity listener, as another instance would
+        jdbcTemplate.update("UPDATE user SET notification_enabled = TRUE WHERE id = ?", alan.getId());
+
+        assertEquals(List.of("Ada", "Grace"), names());
+        recipientSource.rebuild();
+        assertEquals(List.of("Ada", "Grace", "Alan"), names());
+    }
+
+    @Test
+    void idsBeyondTheIntRangeAreIndexedInOrder() {
+        long sparseId = 5_000_000_000L;
+        jdbcTemplate.update("INSERT INTO user (id, full_name, email, notification_enabled) VALUES (?, ?, ?, TRUE)",
+                sparseId, "Barbara", "barbara@example.com");
+        recipientSource.rebuild();
+
+        assertEquals(List.of("Ada", "Grace", "Barbara"), names());
+        assertTrue(recipientSource.isEnabled(sparseId));
+        assertFalse(recipientSource.isEnabled(sparseId - 1));
+    }
+
+    @Test
+    void committedChangesAreAppliedWithoutARebuild() {
+        User edsger = userRepository.save(user("Edsger", true));
+        alan.setNotificationEnabled(true);
+        userRepository.save(alan);
+        grace.setNotificationEnabled(false);
+        userRepository.save(grace);
+        ada.setEmail("countess@example.com");
+        userRepository.save(ada);
+        userRepository.delete(edsger);
+
+        assertEquals(List.of("Ada", "Alan"), names());
+        assertEquals("countess@example.com", recipients().get(0).getEmail());
+        assertTrue(recipientSource.isEnabled(alan.getId()));
+        assertFalse(recipientSource.isEnabled(grace.getId()));
+        assertFalse(recipientSource.isEnabled(edsger.getId()));
+    }
+
+    @Test
+    void rolledBackChangesNeverReachTheIndex() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.save(user("Edsger", true));
+            alan.setNotificationEnabled(true);
+            userRepository.save(alan);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of("Ada", "Grace"), names());
+    }
+
+    @Test
+    void changesCommittedWhileARebuildReadsTheDatabaseAreReplayedOntoTheNewIndex() {
+        // The rebuild reads its first page, then creates, toggles and deletes land before it swaps
+        AtomicBoolean changed = new AtomicBoolean();
+        Answer<?> realRepository = mockingDetails(userRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object page = realRepository.answer(invocation);
+            if (changed.compareAndSet(false, true)) {
+                userRepository.save(user("Edsger", true));
+                alan.setNotificationEnabled(true);
+                userRepository.save(alan);
+                grace.setNotificationEnabled(false);
+                userRepository.save(grace);
+                userRepository.delete(ada);
+            }
+            return page;
+        }).when(userRepository).findEnabledRecipientsAfter(anyLong(), any(Limit.class));
+
+        recipientSource.rebuild();
+
+        // The page the rebuild read still had Ada and Grace enabled
+        assertEquals(List.of("Alan", "Edsger"), names());
+    }
+
+    @Test
+    void failedRebuildKeepsThePreviousIndexAndItsLiveChanges() {
+        doThrow(new DataAccessResourceFailureException("Connection lost"))
+                .when(userRepository).findEnabledRecipientsAfter(anyLong(), any(Limit.class));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> recipientSource.rebuild());
+        grace.setNotificationEnabled(false);
+        userRepository.save(grace);
+
+        assertEquals(List.of("Ada"), names());
+    }
+
+    private List<String> names() {
+        return recipients().stream().map(Recipient::getFullName).toList();
+    }
+
+    private List<Recipient> recipients() {
+        List<Recipient> recipients = new ArrayList<>();
+        recipientSource.forEach(recipients::add);
+        return recipients;
+    }
+
+    private static User user(String name, boolean notificationEnabled) {
+        return User.builder()
+                .fullName(name)
+                .email(name.toLowerCase() + "@example.com")
+                .notificationEnabled(notificationEnabled)
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.onion.emailnotificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+
+/**
+ * Runs the governor on a fake ticker: time only moves when a test advances it or the governor
+ * sleeps, and every sleep is recorded.
+ */
+class SmtpRateGovernorTest {
+
+    private static final double BASELINE = 10;
+    private static final double MIN = 2;
+    private static final double MAX = 12;
+    private static final int INCREASE_AFTER = 3;
+    private static final long PAUSE_MS = 5000;
+
+    private FakeTicker ticker;
+    private SimpleMeterRegistry meterRegistry;
+    private SmtpRateGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        ticker = new FakeTicker();
+        meterRegistry = new SimpleMeterRegistry();
+        governor = new SmtpRateGovernor(meterRegistry, BASELINE, MIN, MAX, 1, INCREASE_AFTER, 0.5, PAUSE_MS, ticker);
+    }
+
+    @Test
+    void acquireSpacesSendsAtTheCurrentRate() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            governor.acquire();
+        }
+
+        assertEquals(List.of(millis(100), millis(100), millis(100)), ticker.sleeps);
+    }
+
+    @Test
+    void idleTimeDoesNotBuildUpABurst() throws InterruptedException {
+        governor.acquire();
+        ticker.advance(millis(10000));
+
+        governor.acquire();
+        governor.acquire();
+
+        assertEquals(List.of(millis(100)), ticker.sleeps);
+    }
+
+    @Test
+    void throttlingHalvesTheRateAndPausesSends() throws InterruptedException {
+        governor.acquire();
+
+        governor.onThrottled(421);
+
+        assertEquals(5, governor.getRate());
+        governor.acquire();
+        governor.acquire();
+        assertEquals(List.of(millis(PAUSE_MS), millis(200)), ticker.sleeps);
+        assertEquals(1, meterRegistry.get("email.smtp.throttle.events").counter().count());
+        assertEquals(5, meterRegistry.get("email.smtp.send.rate").gauge().value());
+    }
+
+    @Test
+    void rejectionsDuringAPauseAreCountedButCutTheRateOnlyOnce() {
+        governor.onThrottled(421);
+        governor.onThrottled(451);
+        ticker.advance(millis(PAUSE_MS - 1));
+        governor.onThrottled(451);
+
+        assertEquals(5, governor.getRate());
+        assertEquals(3, meterRegistry.get("email.smtp.throttle.events").counter().count());
+
+        ticker.advance(millis(1));
+        governor.onThrottled(421);
+        governor.onThrottled(421);
+        ticker.advance(millis(PAUSE_MS));
+        governor.onThrottled(421);
+
+        // 5 -> 2.5 -> 1.25, floored at the minimum
+        assertEquals(MIN, governor.getRate());
+    }
+
+    @Test
+    void rateRampsUpAfterConsecutiveSuccessesUpToTheMaximum() {
+        succeed(INCREASE_AFTER - 1);
+        assertEquals(BASELINE, governor.getRate());
+
+        succeed(1);
+        assertEquals(BASELINE + 1, governor.getRate());
+
+        succeed(10 * INCREASE_AFTER);
+        assertEquals(MAX, governor.getRate());
+    }
+
+    @Test
+    void throttlingResetsTheSuccessStreak() {
+        succeed(INCREASE_AFTER - 1);
+        governor.onThrottled(421);
+        succeed(INCREASE_AFTER - 1);
+
+        assertEquals(5, governor.getRate());
+
+        succeed(1);
+        assertEquals(6, governor.getRate());
+    }
+
+    @Test
+    void replyCodeIsReadFromSmtpExceptionsAndServerMessages() {
+        assertEquals(451, SmtpRateGovernor.replyCode(
+                new SMTPSendFailedException("DATA", 451, "451 4.7.1 Try again later", null, null, null, null)));
+        assertEquals(421, SmtpRateGovernor.replyCode(new MessagingException("421 4.7.0 Too many connections")));
+        assertEquals(421, SmtpRateGovernor.replyCode(
+                new MessagingException("Could not connect", new MessagingException("[421-4.7.0] busy"))));
+        assertEquals(-1, SmtpRateGovernor.replyCode(new MessagingException("Connection reset")));
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            governor.onSuccess();
+        }
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static class FakeTicker implements SmtpRateGovernor.Ticker {
+
+        private final List<Long> sleeps = new ArrayList<>();
+        private long now = 0;
+
+        void advance(long nanos) {
+            now += nanos;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            sleeps.add(nanos);
+            now += nanos;
+        }
+    }
+}